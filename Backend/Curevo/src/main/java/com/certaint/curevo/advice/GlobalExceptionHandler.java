@@ -64,6 +64,24 @@ public class GlobalExceptionHandler {
                 .body(new ApiResponse<>(false, ex.getMessage(), null));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiResponse<Void>> handleInvalidCursor(InvalidCursorException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ApiResponse<>(false, ex.getMessage(), null));
+    }
 
-}
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ApiResponse<Void>> handleInsufficientStock(InsufficientStockException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ApiResponse<>(false, ex.getMessage(), null));
+    }
 
+    @ExceptionHandler(ExportCapacityException.class)
+    public ResponseEntity<ApiResponse<Void>> handleExportCapacity(ExportCapacityException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ApiResponse<>(false, ex.getMessage(), null));
+    }
+}
@@ -0,0 +1,49 @@
+package com.certaint.curevo.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Product and Inventory IDs come from pooled sequences, which MySQL emulates with one-row tables.
+// Rows created while the columns were AUTO_INCREMENT already use low IDs, so before the first insert
+// each sequence is moved past the current maximum (plus one allocation block, since the pooled
+// optimizer hands out the block below the value it reads).
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceInitializer {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    // sequence table -> (entity table, id column)
+    private static final Map<String, String[]> SEQUENCES = Map.of(
+            "product_id_seq", new String[]{"products", "product_id"},
+            "inventory_id_seq", new String[]{"inventories", "inventory_id"}
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((sequence, target) -> {
+            try {
+                Long maxId = jdbcTemplate.queryForObject(
+                        "SELECT COALESCE(MAX(" + target[1] + "), 0) FROM " + target[0], Long.class);
+                long floor = (maxId != null ? maxId : 0L) + ALLOCATION_SIZE + 1;
+                Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + sequence, Integer.class);
+                if (rows == null || rows == 0) {
+                    jdbcTemplate.update("INSERT INTO " + sequence + " (next_val) VALUES (?)", floor);
+                } else {
+                    jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, ?)", floor);
+                }
+            } catch (RuntimeException e) {
+                // A sequence left below MAX(id) hands out IDs that already exist and every insert would fail
+                throw new IllegalStateException("Could not align ID sequence " + sequence, e);
+            }
+        });
+    }
+}
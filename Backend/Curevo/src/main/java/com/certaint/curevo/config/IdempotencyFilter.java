@@ -0,0 +1,219 @@
+package com.certaint.curevo.config;
+
+import com.certaint.curevo.dto.ApiResponse;
+import com.certaint.curevo.service.idempotency.IdempotencyStore;
+import com.certaint.curevo.service.idempotency.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+// Deduplicates retried POSTs that carry an Idempotency-Key header. The first request with a key runs and
+// its response is stored; a retry with the same key and the same request gets that response back without
+// running the handler again. Keys are scoped to the authenticated user, and reusing a key for a different
+// request (method, path or body) is rejected with 422. Server errors are not stored, so they can be retried.
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${curevo.idempotency.paths:/api/orders/create,/api/payments/process/appointment/*}")
+    private List<String> paths;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equalsIgnoreCase(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return paths.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        String headerValue = request.getHeader(HEADER).trim();
+        if (headerValue.isEmpty() || headerValue.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String principal = authentication != null ? authentication.getName() : "anonymous";
+        String key = principal + ":" + headerValue;
+
+        HttpServletRequest requestToUse = request;
+        MessageDigest digest = sha256();
+        digest.update((request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString())
+                .getBytes(StandardCharsets.UTF_8));
+        if (isMultipart(request)) {
+            // The container parses and keeps the parts, so the controller still sees them afterwards
+            for (Part part : request.getParts()) {
+                digest.update(part.getName().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = part.getInputStream()) {
+                    updateDigest(digest, in);
+                }
+            }
+        } else {
+            byte[] body = request.getInputStream().readAllBytes();
+            digest.update(body);
+            requestToUse = new CachedBodyRequest(request, body);
+        }
+        String fingerprint = HexFormat.of().formatHex(digest.digest());
+
+        switch (idempotencyStore.begin(key, fingerprint)) {
+            case FINGERPRINT_MISMATCH -> {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " was already used for a different request");
+                return;
+            }
+            case IN_PROGRESS -> {
+                writeError(response, HttpStatus.CONFLICT,
+                        "A request with this " + HEADER + " is still being processed");
+                return;
+            }
+            case COMPLETED -> {
+                StoredResponse stored = idempotencyStore.find(key).orElse(null);
+                if (stored == null) {
+                    writeError(response, HttpStatus.CONFLICT,
+                            "A request with this " + HEADER + " is still being processed");
+                    return;
+                }
+                response.setStatus(stored.status());
+                if (stored.contentType() != null) {
+                    response.setContentType(stored.contentType());
+                }
+                response.setHeader("Idempotent-Replayed", "true");
+                response.getOutputStream().write(stored.body());
+                return;
+            }
+            case STARTED -> {
+                // handled below
+            }
+        }
+
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(requestToUse, responseWrapper);
+            if (responseWrapper.getStatus() < 500) {
+                idempotencyStore.complete(key, new StoredResponse(responseWrapper.getStatus(),
+                        responseWrapper.getContentType(), responseWrapper.getContentAsByteArray()));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                idempotencyStore.abandon(key);
+            }
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+
+    private static void updateDigest(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<>(false, message, null));
+    }
+
+    // Lets the controller read a body the filter has already consumed
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
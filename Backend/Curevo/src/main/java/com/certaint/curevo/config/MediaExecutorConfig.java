@@ -0,0 +1,63 @@
+package com.certaint.curevo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MediaExecutorConfig {
+
+    // Spring MVC runs async request work (StreamingResponseBody exports) on the bean with this name. Boot
+    // only creates it when no other Executor bean exists, and the media pools below are Executors, so it
+    // is declared here, bounded like the others.
+    @Bean(name = "applicationTaskExecutor")
+    public ThreadPoolTaskExecutor applicationTaskExecutor(@Value("${curevo.async.threads:16}") int threads,
+                                                          @Value("${curevo.async.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("task-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Bounded pool for image uploads and deletes (see ImageHostingService). When it is saturated the
+    // calling request thread runs the task itself, which slows that request down instead of queueing
+    // without limit or failing it.
+    @Bean(name = "mediaExecutor")
+    public ThreadPoolTaskExecutor mediaExecutor(@Value("${curevo.media.threads:8}") int threads,
+                                                @Value("${curevo.media.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Decoding and re-encoding images is CPU- and memory-bound (a decoded photo is tens of MB), so it gets its
+    // own pool sized to the cores (0 = one thread per core) rather than sharing the I/O-bound upload threads
+    @Bean(name = "imageProcessingExecutor")
+    public ThreadPoolTaskExecutor imageProcessingExecutor(@Value("${curevo.media.processing-threads:0}") int threads,
+                                                          @Value("${curevo.media.processing-queue-capacity:50}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
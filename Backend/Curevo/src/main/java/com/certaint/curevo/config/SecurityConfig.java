@@ -48,15 +48,24 @@ public class SecurityConfig {
 
                         "/",
                         "/healthz",
+                        "/media/**",
 
                         "/api/doctors/get/**",
                         "/api/doctors/specializations",
                         "/api/doctors/search",
+                        "/api/doctors/search/cursor",
+                        "/api/doctors/suggest",
 
 
 
                         "/api/products/{productId}/store/**",
                         "/api/products/products",
+                        "/api/products/products/cursor",
+                        "/api/products/did-you-mean",
+                        "/api/products/suggest",
+                        "/api/products/categories/counts",
+
+                        "/api/clinics/nearby",
 
 
                         "/api/executives/register",
@@ -0,0 +1,56 @@
+package com.certaint.curevo.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Hibernate's ddl-auto cannot create MySQL SPATIAL indexes, so the location columns are managed here.
+// Each table gets a STORED generated POINT column derived from latitude/longitude, which keeps it in
+// sync on every write without any application code, and a SPATIAL INDEX on top of it. MySQL only
+// indexes NOT NULL geometry columns, so rows without coordinates get a placeholder POINT(0 0); every
+// spatial query must therefore also require latitude and longitude to be non-null.
+@Component
+@RequiredArgsConstructor
+public class SpatialSchemaInitializer {
+
+    private static final List<String> GEO_TABLES = List.of("stores", "clinics");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSpatialColumns() {
+        for (String table : GEO_TABLES) {
+            try {
+                if (!columnExists(table, "location")) {
+                    jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN location POINT SRID 4326 " +
+                            "GENERATED ALWAYS AS (ST_SRID(POINT(COALESCE(longitude, 0), COALESCE(latitude, 0)), 4326)) STORED NOT NULL");
+                }
+                if (!indexExists(table, "idx_" + table + "_location")) {
+                    jdbcTemplate.execute("CREATE SPATIAL INDEX idx_" + table + "_location ON " + table + " (location)");
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Could not create spatial index for table " + table + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private boolean indexExists(String table, String index) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                Integer.class, table, index);
+        return count != null && count > 0;
+    }
+}
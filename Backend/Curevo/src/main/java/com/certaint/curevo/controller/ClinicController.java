@@ -24,6 +24,15 @@ public class ClinicController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Clinics fetched successfully", clinics));
     }
 
+    @GetMapping("/nearby")
+    public ResponseEntity<ApiResponse<List<Clinic>>> getNearbyClinics(
+            @RequestHeader("userLat") double userLat,
+            @RequestHeader("userLon") double userLon,
+            @RequestParam(defaultValue = "10") double radiusKm) {
+        List<Clinic> clinics = clinicService.getClinicsWithinRadius(userLat, userLon, radiusKm);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Nearby clinics fetched successfully", clinics));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<Clinic>> getClinicById(@PathVariable Long id) {
         return clinicService.getClinicById(id)
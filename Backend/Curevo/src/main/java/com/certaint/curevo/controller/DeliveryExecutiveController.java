@@ -3,16 +3,19 @@ package com.certaint.curevo.controller;
 import com.azure.core.annotation.Get;
 import com.certaint.curevo.dto.ApiResponse;
 import com.certaint.curevo.dto.DeliveryExecutiveDTO;
+import com.certaint.curevo.dto.ExecutiveLocationDTO;
 import com.certaint.curevo.dto.ExecutivePerformanceDTO;
 import com.certaint.curevo.entity.DeliveryExecutive;
 import com.certaint.curevo.entity.Order; // Import Order entity
 import com.certaint.curevo.exception.EmailAlreadyExistsException;
 import com.certaint.curevo.repository.DeliveryExecutiveRepository;
 import com.certaint.curevo.security.JwtService;
+import com.certaint.curevo.service.ExecutiveLocationService;
 import com.certaint.curevo.service.ExecutiveService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -26,6 +29,7 @@ public class DeliveryExecutiveController {
     private final ExecutiveService executiveService;
     private final DeliveryExecutiveRepository executiveRepo;
     private final JwtService jwtservice;
+    private final ExecutiveLocationService executiveLocationService;
 
 
     @PostMapping("/register")
@@ -100,6 +104,25 @@ public class DeliveryExecutiveController {
         return ResponseEntity.ok(new ApiResponse<>(true, "List of Delivery Executives retrieved successfully.", executives));
     }
 
+    // Batch of position pings from the executive's app (buffered fixes, oldest first or in any order; the
+    // newest one wins). Admins may relay pings for several executives by setting executiveId on each.
+    @PostMapping("/location")
+    public ResponseEntity<ApiResponse<Integer>> reportLocation(
+            @RequestBody List<ExecutiveLocationDTO> pings,
+            Authentication authentication) {
+        try {
+            boolean relay = authentication.getAuthorities().stream()
+                    .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+            Long executiveId = relay ? null : executiveLocationService.executiveIdForEmail(authentication.getName());
+            int applied = executiveLocationService.ingest(executiveId, pings);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Accepted " + applied + " of " + pings.size() + " positions", applied));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(false, e.getMessage(), null));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
     // --- Executive Status Management Endpoints ---
 
     @PostMapping("/{id}/start-day")
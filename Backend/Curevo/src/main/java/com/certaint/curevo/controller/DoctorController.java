@@ -1,6 +1,8 @@
 package com.certaint.curevo.controller;
 
 import com.certaint.curevo.dto.ApiResponse;
+import com.certaint.curevo.dto.CursorPage;
+import com.certaint.curevo.dto.SuggestionDTO;
 import com.certaint.curevo.entity.Doctor;
 import com.certaint.curevo.enums.Specialization;
 import com.certaint.curevo.exception.DoctorNotFoundException;
@@ -53,6 +55,35 @@ public class DoctorController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Search completed successfully", results));
     }
 
+    @GetMapping("/get/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Doctor>>> getDoctorsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        CursorPage<Doctor> doctors = doctorService.getDoctorsByCursor(cursor, Math.min(Math.max(size, 1), 100), includeTotal);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Doctors retrieved successfully", doctors));
+    }
+
+    @GetMapping("/search/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Doctor>>> searchDoctorsByCursor(
+            @RequestParam String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        CursorPage<Doctor> results = doctorService.searchDoctorsByCursor(keyword, cursor, Math.min(Math.max(size, 1), 100), includeTotal);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Search completed successfully", results));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionDTO>>> suggestDoctors(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<SuggestionDTO> suggestions = doctorService.suggestDoctors(prefix, Math.min(Math.max(limit, 1), 20));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Suggestions retrieved successfully", suggestions));
+    }
+
     @GetMapping("/get-all")
     public ResponseEntity<ApiResponse<List<Doctor>>> getAllDoctorsList() {
         List<Doctor> doctors = doctorService.getAllDoctorsList();
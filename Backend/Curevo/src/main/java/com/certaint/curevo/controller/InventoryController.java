@@ -1,8 +1,13 @@
 package com.certaint.curevo.controller;
 
+import com.certaint.curevo.dto.ApiResponse;
+import com.certaint.curevo.dto.StockAdjustmentDTO;
+import com.certaint.curevo.dto.StockAdjustmentResultDTO;
 import com.certaint.curevo.entity.Inventory;
+import com.certaint.curevo.service.HotStockService;
 import com.certaint.curevo.service.InventoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,6 +19,7 @@ import java.util.List;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final HotStockService hotStockService;
 
     // CREATE
     @PostMapping
@@ -52,4 +58,29 @@ public class InventoryController {
         inventoryService.deleteInventory(id);
         return ResponseEntity.noContent().build();
     }
+
+    // Flash-sale mode for one (store, product) row: checkouts reserve from an in-memory counter
+    // and stock is written back in batches. Needs curevo.stock.hot-mode.enabled.
+    @PutMapping("/hot")
+    public ResponseEntity<ApiResponse<Void>> setHotStock(
+            @RequestParam Long storeId,
+            @RequestParam Long productId,
+            @RequestParam(defaultValue = "true") boolean hot) {
+        hotStockService.setHot(storeId, productId, hot);
+        return ResponseEntity.ok(new ApiResponse<>(true, hot ? "Hot stock mode enabled" : "Hot stock mode disabled", null));
+    }
+
+    // Bulk stock sync, e.g. from a store's POS. Each line carries either a delta or an absolute stock level;
+    // the response has one entry per line with the resulting stock.
+    @PostMapping("/adjust")
+    public ResponseEntity<ApiResponse<List<StockAdjustmentResultDTO>>> adjustStock(
+            @RequestBody List<StockAdjustmentDTO> adjustments) {
+        try {
+            List<StockAdjustmentResultDTO> results = inventoryService.adjustStock(adjustments);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Stock adjusted", results));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
 }
@@ -0,0 +1,170 @@
+package com.certaint.curevo.controller;
+
+import com.certaint.curevo.service.provider.LocalImageHosting;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+// Serves blobs stored by LocalImageHosting. Blobs are immutable and named by their SHA-256, so the hash
+// is a strong ETag and responses can be cached forever. The body is handed to Tomcat's sendfile when the
+// connector supports it (the kernel copies straight from the page cache to the socket); otherwise it is
+// streamed with FileChannel.transferTo, never read into the heap.
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "curevo.media.provider", havingValue = "local")
+public class MediaController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final LocalImageHosting localImageHosting;
+
+    @GetMapping("/media/{name}")
+    public void getMedia(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Path> blob = localImageHosting.resolve(name);
+        if (blob.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = blob.get();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            String etag = "\"" + LocalImageHosting.hashOf(name) + "\"";
+
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setContentType(MediaTypeFactory.getMediaType(name)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+            if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            long start = 0;
+            long end = length - 1;
+            long[] bounds = requestedRange(request.getHeader(HttpHeaders.RANGE),
+                    request.getHeader(HttpHeaders.IF_RANGE), etag, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+
+            long count = end - start + 1;
+            response.setContentLengthLong(count);
+            if ("HEAD".equals(request.getMethod()) || count <= 0) {
+                return;
+            }
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+
+            OutputStream output = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(output);
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end + 1 - position, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+            output.flush();
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The range to serve for the request's Range/If-Range headers, in the same shape as parseRange.
+    // A stale If-Range means the client's partial copy is of something else: send the whole file
+    static long[] requestedRange(String range, String ifRange, String etag, long length) {
+        if (range == null || (ifRange != null && !ifRange.equals(etag))) {
+            return new long[0];
+        }
+        return parseRange(range, length);
+    }
+
+    // Parses a single "bytes=" range into inclusive [start, end]. Returns an empty array when the whole
+    // file should be sent (malformed or multi-range header) and null when the range is unsatisfiable.
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                long requestedEnd = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                // Compared before clamping, so "bytes=<length>-" is unsatisfiable rather than malformed
+                if (requestedEnd < start) {
+                    return new long[0];
+                }
+                end = Math.min(requestedEnd, length - 1);
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -4,6 +4,7 @@ package com.certaint.curevo.controller;
 
 import com.azure.core.annotation.Post;
 import com.certaint.curevo.dto.ApiResponse;
+import com.certaint.curevo.dto.CursorPage;
 import com.certaint.curevo.dto.OrderRequestDTO;
 import com.certaint.curevo.entity.*;
 import com.certaint.curevo.enums.OrderStatus;
@@ -19,7 +20,6 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 
 @RestController
@@ -53,6 +53,17 @@ public class OrderController {
         );
     }
 
+    @GetMapping("/get-all/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Order>>> getAllByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ResponseEntity.ok(
+                new ApiResponse<>(true, "Orders retrieved successfully",
+                        orderService.findByCursor(null, cursor, Math.min(Math.max(size, 1), 100), includeTotal))
+        );
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         orderService.deleteById(id);
@@ -150,6 +161,23 @@ public class OrderController {
     }
 
 
+    @GetMapping("/me/cursor")
+    public ApiResponse<CursorPage<Order>> getByCustomerByCursor(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        Optional<Customer> optCustomer = getAuthenticatedCustomer(authHeader);
+        if (optCustomer.isEmpty()) {
+            return new ApiResponse<>(false, "Unauthorized", null);
+        }
+
+        CursorPage<Order> orders = orderService.findByCursor(optCustomer.get(), cursor, Math.min(Math.max(size, 1), 100), includeTotal);
+        return new ApiResponse<>(true, "Orders retrieved successfully", orders);
+    }
+
+
     private Optional<Customer> getAuthenticatedCustomer(String authHeader) {
 
         String jwt = authHeader.substring(7);
@@ -176,30 +204,13 @@ public class OrderController {
             return new ApiResponse<>(false, "Order not found", null);
         }
 
-        Order order = orderOpt.get();
-        if (order.getStatus() == OrderStatus.CANCELLED) {
+        // The already-cancelled check, assignment cleanup, refund and stock release all happen in one
+        // transaction on a locked row, so a second concurrent cancel cannot restock the order again
+        Optional<Order> cancelled = orderService.cancelOrder(id);
+        if (cancelled.isEmpty()) {
             return new ApiResponse<>(false, "Order is already cancelled", null);
         }
-
-        // --- NEW LOGIC: Handle Delivery Assignments ---
-        // Retrieve the collection of delivery assignments.
-        // This will trigger a lazy load if the collection is not already initialized.
-        Set<DeliveryAssignment> deliveryAssignments = order.getDeliveryAssignments();
-        if (deliveryAssignments != null && !deliveryAssignments.isEmpty()) {
-            deliveryAssignments.clear();
-        }
-
-
-        Payment payment = order.getPayment();
-        // Assuming a cancelled order means the payment should be marked as refunded
-        if (payment != null) { // Defensive check
-            payment.setStatus(PaymentStatus.REFUNDED);
-            paymentService.save(payment);
-        }
-
-
-        order.setStatus(OrderStatus.CANCELLED);
-        Order updatedOrder = orderService.save(order);
+        Order updatedOrder = cancelled.get();
         executiveService.processPendingOrders();
 
         return new ApiResponse<>(true, "Order cancelled successfully", updatedOrder);
@@ -2,20 +2,29 @@ package com.certaint.curevo.controller;
 
 import com.certaint.curevo.dto.ProductWithDistanceTagDTO;
 import com.certaint.curevo.dto.ProductWithInventoryDTO;
+import com.certaint.curevo.dto.SuggestionDTO;
 import com.certaint.curevo.entity.Product; // Keep Product for create/update operations
+import com.certaint.curevo.enums.ProductCategory;
 import com.certaint.curevo.dto.ApiResponse;
+import com.certaint.curevo.dto.CursorPage;
+import com.certaint.curevo.dto.ImportReportDTO;
+import com.certaint.curevo.service.ProductExportService;
+import com.certaint.curevo.service.ProductImportService;
 import com.certaint.curevo.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 
 @RestController
@@ -25,6 +34,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
 
     @PostMapping("/save-or-update") // A more descriptive path
     public ResponseEntity<ApiResponse<ProductWithInventoryDTO>> saveOrUpdateProduct(
@@ -65,6 +80,44 @@ public class ProductController {
         }
     }
 
+    // Same data as /get-all-with-inventory, streamed product by product so memory use does not grow with the catalogue.
+    // format=ndjson (default) writes one product per line, format=json writes a single JSON array.
+    @GetMapping("/get-all-with-inventory/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean asArray = "json".equalsIgnoreCase(format);
+        // Fails with 503 before anything is streamed when the export limit is reached
+        productExportService.acquireExportSlot();
+        StreamingResponseBody body = out -> productExportService.writeAllProductsWithInventory(out, asArray);
+        return ResponseEntity.ok()
+                .contentType(asArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Bulk import of new products with their per-store stock from a CSV or NDJSON file.
+    // format defaults to the file extension (.ndjson/.jsonl -> ndjson, anything else -> csv).
+    // Bad rows are skipped and listed in the report; the rest are still imported.
+    @PostMapping("/import")
+    public ResponseEntity<ApiResponse<ImportReportDTO>> importProducts(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(required = false) String format) {
+        String resolvedFormat = format;
+        if (resolvedFormat == null) {
+            String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+            resolvedFormat = filename.endsWith(".ndjson") || filename.endsWith(".jsonl") ? "ndjson" : "csv";
+        }
+        try {
+            ImportReportDTO report = productImportService.importProducts(file.getInputStream(), resolvedFormat);
+            String message = "Imported " + report.getProductsImported() + " of " + report.getRowsRead() + " products";
+            return ResponseEntity.ok(new ApiResponse<>(report.getRowsFailed() == 0, message, report));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Failed to read import file: " + e.getMessage(), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Product>> updateProduct(@PathVariable Long id, @RequestBody Product updatedProduct) {
         try {
@@ -111,6 +164,7 @@ public class ProductController {
     @GetMapping("/products") // Unified endpoint for products
     public ResponseEntity<ApiResponse<Page<ProductWithDistanceTagDTO>>> getProducts(
             @RequestParam(required = false) String keyword, // Keyword is now optional
+            @RequestParam(required = false) ProductCategory category, // Optional category facet
             @RequestHeader(value = "userLat", required = false) Double userLat, // User Lat from header
             @RequestHeader(value = "userLon", required = false) Double userLon, // User Lon from header
             @RequestParam(defaultValue = "0") int page,
@@ -121,12 +175,58 @@ public class ProductController {
 
         // Call the unified service method
         Page<ProductWithDistanceTagDTO> results = productService.getProducts(
-                keyword, userLat, userLon, radiusKm, pageable
+                keyword, category, userLat, userLon, radiusKm, pageable
         );
 
         return ResponseEntity.ok(new ApiResponse<>(true, "Products retrieved successfully", results));
     }
 
+    // Keyset-paginated variant of /products for infinite scroll: pass back nextCursor to get the next slice
+    @GetMapping("/products/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ProductWithDistanceTagDTO>>> getProductsByCursor(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) ProductCategory category,
+            @RequestHeader(value = "userLat", required = false) Double userLat,
+            @RequestHeader(value = "userLon", required = false) Double userLon,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(defaultValue = "50.0") double radiusKm,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        CursorPage<ProductWithDistanceTagDTO> results = productService.getProductsByCursor(
+                keyword, category, userLat, userLon, radiusKm, cursor, Math.min(Math.max(size, 1), 100), includeTotal
+        );
+
+        return ResponseEntity.ok(new ApiResponse<>(true, "Products retrieved successfully", results));
+    }
+
+    // Product counts per category for the same keyword/location filter as /products, to show next to the category facets
+    @GetMapping("/categories/counts")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getCategoryCounts(
+            @RequestParam(required = false) String keyword,
+            @RequestHeader(value = "userLat", required = false) Double userLat,
+            @RequestHeader(value = "userLon", required = false) Double userLon,
+            @RequestParam(defaultValue = "50.0") double radiusKm) {
+        Map<String, Long> counts = productService.getCategoryCounts(keyword, userLat, userLon, radiusKm);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Category counts fetched successfully", counts));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionDTO>>> suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<SuggestionDTO> suggestions = productService.suggestProducts(prefix, Math.min(Math.max(limit, 1), 20));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Suggestions retrieved successfully", suggestions));
+    }
+
+    @GetMapping("/did-you-mean")
+    public ResponseEntity<ApiResponse<List<String>>> getSpellingSuggestions(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "5") int limit) {
+        List<String> suggestions = productService.getSpellingSuggestions(keyword, Math.min(Math.max(limit, 1), 10));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Suggestions retrieved successfully", suggestions));
+    }
+
     @GetMapping("/{productId}/store/{storeId}")
     public ResponseEntity<ApiResponse<ProductWithDistanceTagDTO>> getProductDetails(
             @PathVariable Long productId,
@@ -0,0 +1,35 @@
+package com.certaint.curevo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// One slice of a keyset-paginated listing. Pass nextCursor back as ?cursor= to get the following slice;
+// it is null on the last slice. totalElements is only filled in when the client asked for it.
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private Long totalElements;
+
+    public static <T> CursorPage<T> empty(boolean includeTotal) {
+        return new CursorPage<>(List.of(), null, false, includeTotal ? 0L : null);
+    }
+
+    // rows is expected to hold up to size + 1 entries; the extra one only signals that another page exists
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, String> cursorOf, Long totalElements) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorPage<>(content, nextCursor, hasNext, totalElements);
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).collect(Collectors.toList()), nextCursor, hasNext, totalElements);
+    }
+}
@@ -0,0 +1,8 @@
+package com.certaint.curevo.dto;
+
+// Projection for the number of open (CURRENT or PENDING) delivery assignments of one executive
+public interface ExecutiveLoad {
+    Long getExecutiveId();
+
+    Long getOpenAssignments();
+}
@@ -0,0 +1,20 @@
+package com.certaint.curevo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// One position ping. Executives post their own pings (executiveId is ignored); an admin relaying pings
+// for several executives, e.g. from a telematics gateway, sets executiveId on each.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutiveLocationDTO {
+    private Long executiveId;
+    private Double latitude;
+    private Double longitude;
+    // Epoch milliseconds when the device took the fix; the server time is used when missing
+    private Long recordedAt;
+}
@@ -0,0 +1,30 @@
+package com.certaint.curevo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportReportDTO {
+    private int rowsRead;
+    private int productsImported;
+    private int inventoriesImported;
+    private int rowsFailed;
+    // Capped, see ProductImportService; rowsFailed always has the full count
+    private List<RowError> errors = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int line;
+        private String message;
+    }
+}
@@ -0,0 +1,8 @@
+package com.certaint.curevo.dto;
+
+// Projection for "how often was X ordered/booked" aggregates that seed the autocomplete ranking
+public interface PopularityCount {
+    Long getId();
+
+    Long getScore();
+}
@@ -20,6 +20,9 @@ public class ProductWithDistanceTagDTO {
     private BigDecimal price;
     private String image;
     private String hoverImage;
+    private String cardImage;
+    private String thumbnailImage;
+    private String hoverCardImage;
     private String quantity; // This often refers to product unit description (e.g., "50 tablets")
     private Boolean prescriptionRequired;
     private ProductCategory category;
@@ -35,6 +38,10 @@ public class ProductWithDistanceTagDTO {
         this.price = product.getPrice();
         this.image = product.getImage();
         this.hoverImage = product.getHoverImage();
+        // Older products only have the full-size images
+        this.cardImage = product.getCardImage() != null ? product.getCardImage() : product.getImage();
+        this.thumbnailImage = product.getThumbnailImage() != null ? product.getThumbnailImage() : this.cardImage;
+        this.hoverCardImage = product.getHoverCardImage() != null ? product.getHoverCardImage() : product.getHoverImage();
         this.quantity = product.getQuantity();
         this.prescriptionRequired = product.getPrescriptionRequired();
         this.category = product.getCategory();
@@ -0,0 +1,18 @@
+package com.certaint.curevo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// One line of a bulk stock adjustment: either a relative delta or an absolute stock level
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentDTO {
+    private Long storeId;
+    private Long productId;
+    private Integer delta;
+    private Integer stock;
+}
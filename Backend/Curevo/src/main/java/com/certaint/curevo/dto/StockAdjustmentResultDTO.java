@@ -0,0 +1,19 @@
+package com.certaint.curevo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentResultDTO {
+    private Long storeId;
+    private Long productId;
+    // UPDATED, NOT_FOUND (no inventory row for the pair) or REJECTED (would leave negative stock)
+    private String status;
+    // Stock after the whole request was applied, null when the pair has no inventory row
+    private Integer stock;
+}
@@ -1,15 +1,13 @@
 package com.certaint.curevo.dto;
 
 
+// Projection for the native spatial radius query in StoreRepository
+public interface StoreDistanceInfo {
+    Long getStoreId();
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class StoreDistanceInfo {
-    private Long storeId;
-    private Double distance;
-}
\ No newline at end of file
+    Double getDistance();
+
+    Double getLatitude();
+
+    Double getLongitude();
+}
@@ -0,0 +1,13 @@
+package com.certaint.curevo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class SuggestionDTO {
+    private Long id;
+    private String name;
+}
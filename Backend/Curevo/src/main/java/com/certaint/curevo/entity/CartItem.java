@@ -10,7 +10,10 @@ import java.time.Instant;
 @Getter
 @Setter
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+        // Live holds are reloaded by expiry time at startup, see CartHoldService
+        @Index(name = "idx_cart_items_hold_expires_at", columnList = "hold_expires_at")
+})
 public class CartItem {
 
     @Id
@@ -32,4 +35,9 @@ public class CartItem {
     private Store store;
 
     private Instant addedAt;
+
+    // Soft reservation: units kept aside for this cart until holdExpiresAt (see CartHoldService)
+    private Integer heldQuantity;
+
+    private Instant holdExpiresAt;
 }
@@ -25,5 +25,8 @@ public class Clinic {
 
     private Double longitude;
 
+    // The clinics table also has a generated "location" POINT SRID 4326 column derived from latitude/longitude,
+    // created by SpatialSchemaInitializer; it is only read by native spatial queries and is not mapped here.
+
     private String phoneNumber;
 }
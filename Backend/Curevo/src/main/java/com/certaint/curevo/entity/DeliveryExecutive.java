@@ -35,6 +35,18 @@ public class DeliveryExecutive {
 
     private String vehicleType;
 
+    // Last reported position, persisted so dispatch has positions again right after a restart (see DispatchEngine).
+    // Written only by ExecutiveLocationService's batched flush; read-only here so saving the entity elsewhere
+    // never puts back a position older than the one already flushed.
+    @Column(insertable = false, updatable = false)
+    private Double lastLatitude;
+
+    @Column(insertable = false, updatable = false)
+    private Double lastLongitude;
+
+    @Column(insertable = false, updatable = false)
+    private Instant locationUpdatedAt;
+
     private Instant updatedAt;
 
     private Instant createdAt;
@@ -47,6 +47,11 @@ public class Doctor {
     @Column(name = "image_url")
     private String image;
 
+    // Downsized copies of image for doctor listings (see ImageVariant)
+    private String cardImage;
+
+    private String thumbnailImage;
+
     @ManyToOne
     @JoinColumn(name = "clinic_id")
     private Clinic clinic;
@@ -0,0 +1,37 @@
+package com.certaint.curevo.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Table behind JdbcIdempotencyStore (curevo.idempotency.store=database); rows are written with JdbcTemplate
+@Getter
+@Setter
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+})
+public class IdempotencyRecord {
+
+    // Principal and Idempotency-Key header, see IdempotencyFilter
+    @Id
+    @Column(name = "idempotency_key", length = 320)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    // Null while the first request is still running
+    private Integer status;
+
+    private String contentType;
+
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private byte[] body;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -9,10 +9,15 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "inventories")
+@Table(name = "inventories", indexes = {
+        // Lookup path of the (storeId, productId) stock adjustments in InventoryService
+        @Index(name = "idx_inventories_store_product", columnList = "store_id, product_id")
+})
 public class Inventory {
+    // Pooled sequence for batched inserts, see Product
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_id_seq")
+    @SequenceGenerator(name = "inventory_id_seq", sequenceName = "inventory_id_seq", allocationSize = 50)
     private Long inventoryId;
 
     @ManyToOne
@@ -26,4 +31,7 @@ public class Inventory {
 
     private Integer stock;
 
+    // Flash-sale mode: reservations for this row are served from an in-memory counter, see HotStockService
+    private Boolean hotStock;
+
 }
@@ -1,6 +1,7 @@
 package com.certaint.curevo.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,7 +11,10 @@ import java.math.BigDecimal;
 @Getter
 @Setter
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        // The write-behind flush in HotStockService scans for pending rows
+        @Index(name = "idx_order_items_stock_deferred", columnList = "stock_deferred")
+})
 public class OrderItem {
 
     @Id
@@ -26,8 +30,18 @@ public class OrderItem {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    // Store the units were reserved from at checkout; null for orders placed before stock was tracked
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "store_id")
+    private Store store;
+
     private Integer quantity;
 
+    // Set when the units were taken from an in-memory hot-SKU counter and not yet subtracted from
+    // inventories.stock; HotStockService clears it in the same transaction as the decrement
+    @JsonIgnore
+    private Boolean stockDeferred;
+
     private BigDecimal unitPrice;
 
     private BigDecimal totalPrice;
@@ -17,8 +17,11 @@ import java.util.List;
 @Entity
 @Table(name = "products")
 public class Product {
+    // Pooled sequence (a table on MySQL) instead of IDENTITY so inserts can be JDBC-batched;
+    // IdSequenceInitializer moves it past the existing auto-increment IDs
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id_seq")
+    @SequenceGenerator(name = "product_id_seq", sequenceName = "product_id_seq", allocationSize = 50)
     private Long productId;
 
     private String name;
@@ -32,6 +35,14 @@ public class Product {
 
     private String hoverImage;
 
+    // Downsized copies of image/hoverImage for listing cards (see ImageVariant); null for products
+    // imported with plain URLs, in which case clients fall back to the full image
+    private String cardImage;
+
+    private String thumbnailImage;
+
+    private String hoverCardImage;
+
     private String quantity;
 
     @Column(nullable = false)
@@ -22,6 +22,9 @@ public class Store {
 
     private Double longitude;
 
+    // The stores table also has a generated "location" POINT SRID 4326 column derived from latitude/longitude,
+    // created by SpatialSchemaInitializer; it is only read by native spatial queries and is not mapped here.
+
     private String address;
 
     private String phoneNumber;
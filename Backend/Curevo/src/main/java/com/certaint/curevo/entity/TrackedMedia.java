@@ -0,0 +1,49 @@
+package com.certaint.curevo.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Every URL handed out by ImageHostingService, kept until the image is deleted from the host.
+// Table behind MediaReconciler; rows are written with JdbcTemplate.
+@Getter
+@Setter
+@Entity
+@Table(name = "tracked_media", indexes = {
+        @Index(name = "idx_tracked_media_checked_at", columnList = "checked_at, id")
+})
+public class TrackedMedia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 512)
+    private String url;
+
+    // Upload folder, e.g. "products" or "prescriptions"
+    @Column(nullable = false, length = 64)
+    private String folder;
+
+    // Times the same URL was returned by an upload (the local provider deduplicates identical files);
+    // the host keeps the file until it has been deleted this many times
+    @Column(nullable = false)
+    private Integer uploadCount;
+
+    // Table and id of the row that referenced the URL when it was last checked; null while unattached
+    @Column(length = 64)
+    private String ownerTable;
+
+    private Long ownerId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // Reconciler checkpoint: rows are visited oldest-checked first, so a restart resumes where it stopped
+    private Instant checkedAt;
+
+    @Column(nullable = false)
+    private Integer failedDeletes;
+}
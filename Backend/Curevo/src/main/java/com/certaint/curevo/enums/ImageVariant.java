@@ -0,0 +1,18 @@
+package com.certaint.curevo.enums;
+
+// Sizes an uploaded image is re-encoded to; maxEdge is the longest side in pixels
+public enum ImageVariant {
+    THUMBNAIL(200),
+    CARD(600),
+    FULL(2048);
+
+    private final int maxEdge;
+
+    ImageVariant(int maxEdge) {
+        this.maxEdge = maxEdge;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+}
@@ -0,0 +1,5 @@
+package com.certaint.curevo.event;
+
+// Published whenever a doctor is created or renamed
+public record DoctorChangedEvent(Long doctorId, String name) {
+}
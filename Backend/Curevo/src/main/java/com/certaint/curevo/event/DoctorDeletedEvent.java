@@ -0,0 +1,4 @@
+package com.certaint.curevo.event;
+
+public record DoctorDeletedEvent(Long doctorId) {
+}
@@ -0,0 +1,11 @@
+package com.certaint.curevo.event;
+
+// Published whenever the stock of a product in a store is written; stock is the new absolute value
+// (0 when the inventory row was removed). deferredFlush marks the hot-stock write-behind applying units
+// that were already reserved: stock went down but the available level did not change.
+public record InventoryStockChangedEvent(Long storeId, Long productId, int stock, boolean deferredFlush) {
+
+    public InventoryStockChangedEvent(Long storeId, Long productId, int stock) {
+        this(storeId, productId, stock, false);
+    }
+}
@@ -0,0 +1,7 @@
+package com.certaint.curevo.event;
+
+import com.certaint.curevo.service.index.ProductDocument;
+
+// Published whenever a product is created or its searchable fields change
+public record ProductChangedEvent(ProductDocument product) {
+}
@@ -0,0 +1,7 @@
+package com.certaint.curevo.event;
+
+import java.util.Map;
+
+// Published when an order is placed; units ordered per product ID
+public record ProductsOrderedEvent(Map<Long, Integer> unitsByProduct) {
+}
@@ -0,0 +1,8 @@
+package com.certaint.curevo.exception;
+
+public class ExportCapacityException extends RuntimeException {
+
+    public ExportCapacityException(String message) {
+        super(message);
+    }
+}
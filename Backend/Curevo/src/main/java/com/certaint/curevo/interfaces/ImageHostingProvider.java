@@ -1,9 +1,9 @@
 package com.certaint.curevo.interfaces;
 
-import org.springframework.web.multipart.MultipartFile;
+import java.nio.file.Path;
 
 public interface ImageHostingProvider {
-    String uploadImage(MultipartFile file, String folderName);
+    // The file is read from disk by the provider, never loaded onto the heap as a whole
+    String uploadImage(Path file, String folderName);
     String deleteImage(String imageUrl);
 }
-
@@ -1,5 +1,6 @@
 package com.certaint.curevo.repository;
 
+import com.certaint.curevo.dto.PopularityCount;
 import com.certaint.curevo.entity.Appointment;
 import com.certaint.curevo.entity.Customer;
 import com.certaint.curevo.entity.Doctor;
@@ -32,5 +33,9 @@ public interface AppointmentRepository extends JpaRepository<Appointment,Long> {
     List<Appointment> findByDoctorAndAppointmentDate(Doctor doctor, LocalDate appointmentDate);
 
 
+    // Appointments per doctor, used to rank doctor autocomplete
+    @Query("SELECT a.doctor.doctorId AS id, COUNT(a) AS score FROM Appointment a GROUP BY a.doctor.doctorId")
+    List<PopularityCount> countAppointmentsByDoctor();
+
     List<Appointment> findByDoctorAndAppointmentDateAndStatusIn(Doctor doctor, LocalDate date, List<AppointmentStatus> pendingPayment);
 }
@@ -2,6 +2,22 @@ package com.certaint.curevo.repository;
 
 import com.certaint.curevo.entity.Clinic;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface ClinicRepository extends JpaRepository<Clinic, Long> {
+
+    // Same two-step filter as StoreRepository.findStoresWithinRadius: index-backed box, then exact distance
+    @Query(value = "SELECT c.* FROM clinics c " +
+            "WHERE MBRContains(ST_GeomFromText(:boundingBox, 4326, 'axis-order=long-lat'), c.location) " +
+            "AND c.latitude IS NOT NULL AND c.longitude IS NOT NULL " +
+            "AND ST_Distance_Sphere(c.location, ST_SRID(POINT(:userLon, :userLat), 4326)) <= :radiusKm * 1000 " +
+            "ORDER BY ST_Distance_Sphere(c.location, ST_SRID(POINT(:userLon, :userLat), 4326))",
+            nativeQuery = true)
+    List<Clinic> findClinicsWithinRadius(@Param("userLat") double userLat,
+                                         @Param("userLon") double userLon,
+                                         @Param("radiusKm") double radiusKm,
+                                         @Param("boundingBox") String boundingBox);
 }
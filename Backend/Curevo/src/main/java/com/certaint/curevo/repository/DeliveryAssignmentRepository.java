@@ -1,9 +1,12 @@
 package com.certaint.curevo.repository;
 
+import com.certaint.curevo.dto.ExecutiveLoad;
 import com.certaint.curevo.entity.DeliveryAssignment;
 import com.certaint.curevo.entity.DeliveryExecutive;
 import com.certaint.curevo.enums.DeliveryAssignmentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,4 +24,9 @@ public interface DeliveryAssignmentRepository extends JpaRepository<DeliveryAssi
 
     Long countByExecutiveAndStatus(DeliveryExecutive executive, DeliveryAssignmentStatus status);
 
+    // Open assignments per executive, used to seed the dispatch engine's load counters
+    @Query("SELECT a.executive.id AS executiveId, COUNT(a) AS openAssignments FROM DeliveryAssignment a " +
+            "WHERE a.status IN :statuses GROUP BY a.executive.id")
+    List<ExecutiveLoad> countByStatusInGroupByExecutive(@Param("statuses") List<DeliveryAssignmentStatus> statuses);
+
 }
@@ -6,6 +6,8 @@ import com.certaint.curevo.enums.Specialization;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,6 +17,30 @@ import java.util.Optional;
 public interface DoctorRepository extends JpaRepository<Doctor,Long> {
     Page<Doctor> findByNameContainingIgnoreCase(String keyword, Pageable pageable);
 
+    long countByNameContainingIgnoreCase(String keyword);
+
+    // Just IDs and names, to build the autocomplete trie without loading users and availabilities
+    interface DoctorName {
+        Long getDoctorId();
+
+        String getName();
+    }
+
+    @Query("SELECT d.doctorId AS doctorId, d.name AS name FROM Doctor d")
+    List<DoctorName> findAllNames();
+
+    // Keyset pagination: doctors after the last seen ID, no offset and no count query
+    List<Doctor> findByDoctorIdGreaterThanOrderByDoctorIdAsc(Long afterDoctorId, Pageable pageable);
+
+    // Keyset pagination over search results ordered by (name, doctorId)
+    @Query("SELECT d FROM Doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "AND (d.name > :afterName OR (d.name = :afterName AND d.doctorId > :afterDoctorId)) " +
+            "ORDER BY d.name ASC, d.doctorId ASC")
+    List<Doctor> searchByNameAfter(@Param("keyword") String keyword,
+                                   @Param("afterName") String afterName,
+                                   @Param("afterDoctorId") Long afterDoctorId,
+                                   Pageable pageable);
+
     Optional<Doctor> findByNameIgnoreCase(String name);
 
     List<Doctor> findBySpecialization(Specialization specialty);
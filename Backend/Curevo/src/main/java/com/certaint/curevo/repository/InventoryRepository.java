@@ -3,20 +3,19 @@ package com.certaint.curevo.repository;
 import com.certaint.curevo.entity.Inventory;
 import com.certaint.curevo.entity.Product;
 import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.enums.ProductCategory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 
-    // Existing method, ensure it's named exactly like this
-    Page<Inventory> findByStore_StoreIdIn(List<Long> storeIds, Pageable pageable);
-
     // NEW: For getInventoryByProductAndStore
     Optional<Inventory> findByProductAndStore(Product product, Store store);
 
@@ -27,5 +26,51 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("SELECT i FROM Inventory i JOIN FETCH i.store WHERE i.product = :product")
     List<Inventory> findByProductWithStore(@Param("product") Product product);
 
-    Page<Inventory> findByProduct_NameContainingIgnoreCase(String keyword, Pageable pageable);
+    // Distinct IDs of products listed in at least one store; the product listing pages over these
+    // so every product appears once no matter how many stores carry it
+    @Query(value = "SELECT DISTINCT i.product.productId FROM Inventory i ORDER BY i.product.productId",
+            countQuery = "SELECT COUNT(DISTINCT i.product.productId) FROM Inventory i")
+    Page<Long> findListedProductIds(Pageable pageable);
+
+    @Query(value = "SELECT DISTINCT i.product.productId FROM Inventory i WHERE i.product.category = :category ORDER BY i.product.productId",
+            countQuery = "SELECT COUNT(DISTINCT i.product.productId) FROM Inventory i WHERE i.product.category = :category")
+    Page<Long> findListedProductIdsByCategory(@Param("category") ProductCategory category, Pageable pageable);
+
+    // Keyset pagination: product IDs after the last seen one, no offset and no count query
+    @Query("SELECT DISTINCT i.product.productId FROM Inventory i WHERE i.product.productId > :afterProductId ORDER BY i.product.productId")
+    List<Long> findListedProductIdsAfter(@Param("afterProductId") Long afterProductId, Pageable pageable);
+
+    @Query("SELECT DISTINCT i.product.productId FROM Inventory i WHERE i.product.category = :category " +
+            "AND i.product.productId > :afterProductId ORDER BY i.product.productId")
+    List<Long> findListedProductIdsByCategoryAfter(@Param("category") ProductCategory category,
+                                                   @Param("afterProductId") Long afterProductId,
+                                                   Pageable pageable);
+
+    // (storeId, productId) of every inventory row with stock, used to build the availability index
+    interface InStockRow {
+        Long getStoreId();
+
+        Long getProductId();
+    }
+
+    @Query("SELECT i.store.storeId AS storeId, i.product.productId AS productId FROM Inventory i WHERE i.stock > 0")
+    List<InStockRow> findInStockRows();
+
+    @Query("SELECT COUNT(DISTINCT i.product.productId) FROM Inventory i")
+    long countListedProducts();
+
+    @Query("SELECT COUNT(DISTINCT i.product.productId) FROM Inventory i WHERE i.product.category = :category")
+    long countListedProductsByCategory(@Param("category") ProductCategory category);
+
+    // Listed products per category, for the category counts when neither a keyword nor a location narrows the listing
+    interface CategoryCount {
+        ProductCategory getCategory();
+
+        Long getProductCount();
+    }
+
+    @Query("SELECT i.product.category AS category, COUNT(DISTINCT i.product.productId) AS productCount " +
+            "FROM Inventory i GROUP BY i.product.category")
+    List<CategoryCount> countListedProductsPerCategory();
+
 }
\ No newline at end of file
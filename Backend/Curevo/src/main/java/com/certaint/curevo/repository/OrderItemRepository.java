@@ -1,10 +1,18 @@
 package com.certaint.curevo.repository;
 
+import com.certaint.curevo.dto.PopularityCount;
 import com.certaint.curevo.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
+    // Units ordered per product, used to rank product autocomplete
+    @Query("SELECT oi.product.productId AS id, SUM(oi.quantity) AS score FROM OrderItem oi GROUP BY oi.product.productId")
+    List<PopularityCount> countUnitsOrderedByProduct();
+
 }
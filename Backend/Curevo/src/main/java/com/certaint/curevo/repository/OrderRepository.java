@@ -3,15 +3,49 @@ package com.certaint.curevo.repository;
 import com.certaint.curevo.entity.Customer;
 import com.certaint.curevo.entity.Order;
 import com.certaint.curevo.enums.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByCustomer(Customer customer);
 
     List<Order> findByStatusIn(Collection<OrderStatus> statuses);
+
+    long countByCustomer(Customer customer);
+
+    // Row-locked read: concurrent status changes of the same order (e.g. two cancels) run one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    // First page of the keyset pagination below: no cursor yet, so no bound on placedAt
+    @Query("SELECT o FROM Order o ORDER BY o.placedAt DESC, o.id DESC")
+    List<Order> findNewest(Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.customer = :customer ORDER BY o.placedAt DESC, o.id DESC")
+    List<Order> findNewestByCustomer(@Param("customer") Customer customer, Pageable pageable);
+
+    // Keyset pagination, newest first: orders placed before the last seen (placedAt, id)
+    @Query("SELECT o FROM Order o WHERE o.placedAt < :placedAt OR (o.placedAt = :placedAt AND o.id < :id) " +
+            "ORDER BY o.placedAt DESC, o.id DESC")
+    List<Order> findAllBefore(@Param("placedAt") Instant placedAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.customer = :customer " +
+            "AND (o.placedAt < :placedAt OR (o.placedAt = :placedAt AND o.id < :id)) " +
+            "ORDER BY o.placedAt DESC, o.id DESC")
+    List<Order> findByCustomerBefore(@Param("customer") Customer customer,
+                                     @Param("placedAt") Instant placedAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
 }
@@ -1,15 +1,23 @@
 package com.certaint.curevo.repository;
 
 import com.certaint.curevo.entity.Product;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.certaint.curevo.service.index.ProductDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    Page<Product> findByNameContainingIgnoreCase(String keyword, Pageable pageable);
+    // Searchable fields only, without loading the eager inventories of every product
+    @Query("SELECT new com.certaint.curevo.service.index.ProductDocument(p.productId, p.name, p.description, p.category) FROM Product p")
+    List<ProductDocument> findAllDocuments();
+
+    // A page of products together with their inventories and stores, in one round trip
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.inventories i LEFT JOIN FETCH i.store WHERE p.productId IN :productIds")
+    List<Product> findAllWithInventoriesByProductIdIn(@Param("productIds") Collection<Long> productIds);
 
 }
@@ -7,28 +7,26 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import javax.swing.text.html.Option;
 import java.util.List;
 import java.util.Optional;
 
 public interface StoreRepository extends JpaRepository<Store, Long> {
 
-    @Query(value = "SELECT s.store_id AS storeId, " + // Alias as storeId
-            "(6371 * acos(" +
-            "cos(radians(:userLat)) * cos(radians(s.latitude)) * " +
-            "cos(radians(s.longitude) - radians(:userLon)) + " +
-            "sin(radians(:userLat)) * sin(radians(s.latitude))" +
-            ")) AS distance " +
+    // MBRContains against the bounding box lets MySQL use the SPATIAL INDEX on location;
+    // ST_Distance_Sphere is then only evaluated for the stores inside the box. Stores without
+    // coordinates carry a placeholder POINT(0 0) (see SpatialSchemaInitializer) and are excluded.
+    @Query(value = "SELECT s.store_id AS storeId, s.latitude AS latitude, s.longitude AS longitude, " +
+            "ST_Distance_Sphere(s.location, ST_SRID(POINT(:userLon, :userLat), 4326)) / 1000 AS distance " +
             "FROM stores s " +
-            "WHERE (6371 * acos(" +
-            "cos(radians(:userLat)) * cos(radians(s.latitude)) * " +
-            "cos(radians(s.longitude) - radians(:userLon)) + " +
-            "sin(radians(:userLat)) * sin(radians(s.latitude))" +
-            ")) <= :radiusKm",
+            "WHERE MBRContains(ST_GeomFromText(:boundingBox, 4326, 'axis-order=long-lat'), s.location) " +
+            "AND s.latitude IS NOT NULL AND s.longitude IS NOT NULL " +
+            "AND ST_Distance_Sphere(s.location, ST_SRID(POINT(:userLon, :userLat), 4326)) <= :radiusKm * 1000 " +
+            "ORDER BY distance",
             nativeQuery = true)
     List<StoreDistanceInfo> findStoresWithinRadius(@Param("userLat") double userLat,
                                                    @Param("userLon") double userLon,
-                                                   @Param("radiusKm") double radiusKm);
+                                                   @Param("radiusKm") double radiusKm,
+                                                   @Param("boundingBox") String boundingBox);
     Optional<Store> findFirstByOrderByStoreIdAsc();
 }
 
@@ -4,16 +4,19 @@ import com.certaint.curevo.entity.Appointment;
 import com.certaint.curevo.entity.Customer;
 import com.certaint.curevo.entity.Doctor;
 import com.certaint.curevo.enums.AppointmentStatus;
+import com.certaint.curevo.event.AppointmentBookedEvent;
 import com.certaint.curevo.repository.AppointmentRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -26,6 +29,7 @@ public class AppointmentService {
     private final DoctorService doctorService;
     private final CustomerService customerService;
     private final PaymentService paymentService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<LocalTime> getAvailableSlots(Long doctorId, LocalDate requestedDate) {
         return doctorAvailabilityService.getAvailableSlotsForDoctorAndDate(doctorId, requestedDate);
@@ -39,8 +43,15 @@ public class AppointmentService {
         return appointmentRepository.findByDoctorAndAppointmentDate(doctor, date);
     }
 
-    @Transactional
+    // Same two-phase flow as OrderService.createOrder: upload first, then a short transaction
     public Appointment bookAppointment(Appointment appointment, MultipartFile prescriptionFile) {
+        List<String> uploads = new ArrayList<>();
+        String prescriptionImageUrl = imageHostingService.stageImage(prescriptionFile, "prescriptions", uploads);
+        return imageHostingService.attachInTransaction(uploads, () -> saveBooking(appointment, prescriptionImageUrl));
+    }
+
+    // Runs inside the booking transaction
+    private Appointment saveBooking(Appointment appointment, String prescriptionImageUrl) {
         Long doctorId = appointment.getDoctor().getDoctorId(); // Use getDoctorId() as per instruction
 
         Doctor doctor = doctorService.getDoctorById(doctorId);
@@ -81,18 +92,16 @@ public class AppointmentService {
         appointment.setStatus(AppointmentStatus.PENDING_PAYMENT);
 
 
-        if (prescriptionFile != null && !prescriptionFile.isEmpty()) {
-            String prescriptionImageUrl = imageHostingService.uploadImage(prescriptionFile, "prescriptions");
-            appointment.setPrescription(prescriptionImageUrl);
-        } else {
-            appointment.setPrescription(null);
-        }
+        appointment.setPrescription(prescriptionImageUrl);
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
 
         // Initialize payment with the calculated total amount from the saved appointment
         paymentService.initializePaymentForAppointment(savedAppointment, savedAppointment.getTotalAmount());
 
+        // Bookings drive the doctor autocomplete ranking, applied once the booking commits
+        eventPublisher.publishEvent(new AppointmentBookedEvent(doctorId));
+
         return savedAppointment;
     }
 
@@ -0,0 +1,257 @@
+package com.certaint.curevo.service;
+
+import com.certaint.curevo.entity.CartItem;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Soft reservations for cart items. A hold does not touch inventories.stock; it keeps units out of the
+// stock shown on product cards and out of other customers' checkouts until it expires.
+//
+// Holds are persisted on the cart item (heldQuantity, holdExpiresAt) and mirrored here as per-item holds
+// plus running totals per (store, product). Every change to the holds of a (store, product) runs inside
+// compute on its total, so two carts can never both take the last units. A hold is taken when the cart
+// line is written and given back if that transaction rolls back. Expiry uses a DelayQueue, so the work
+// done is one poll per hold that actually expires, however many carts exist. An expired hold needs no
+// database write: once holdExpiresAt has passed the columns simply mean nothing. Renewing a hold leaves
+// the old queue entry behind, and it is ignored when it comes due.
+//
+// Hot-stock SKUs are never held: their checkouts reserve from HotStockService's counters, which know
+// nothing about holds. Like those counters, the totals live in this JVM only, so with holds on, cart
+// writes and checkouts must be served by a single node.
+@Service
+public class CartHoldService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HotStockService hotStockService;
+    private final Map<Long, Hold> holdsByCartItem = new ConcurrentHashMap<>();
+    private final Map<HoldKey, Integer> heldByStock = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expiries = new DelayQueue<>();
+    private Thread expiryThread;
+
+    @Value("${curevo.cart.hold.enabled:false}")
+    private boolean enabled;
+
+    @Value("${curevo.cart.hold.ttl:15m}")
+    private Duration ttl;
+
+    public CartHoldService(JdbcTemplate jdbcTemplate, HotStockService hotStockService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hotStockService = hotStockService;
+    }
+
+    // Reload the holds that are still live and start expiring them
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.query("SELECT id, store_id, product_id, held_quantity, hold_expires_at FROM cart_items " +
+                        "WHERE hold_expires_at > ? AND held_quantity > 0",
+                rs -> {
+                    put(new Hold(rs.getLong("id"), new HoldKey(rs.getLong("store_id"), rs.getLong("product_id")),
+                            rs.getInt("held_quantity"), rs.getTimestamp("hold_expires_at").toInstant()));
+                },
+                Timestamp.from(Instant.now()));
+        expiryThread = Thread.ofPlatform().daemon().name("cart-hold-expiry").start(this::expireLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (expiryThread != null) {
+            expiryThread.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Units of a (store, product) held by live carts
+    public int held(long storeId, long productId) {
+        return enabled ? heldByStock.getOrDefault(new HoldKey(storeId, productId), 0) : 0;
+    }
+
+    // Units of a (store, product) held by carts other than the given ones
+    public int heldByOthers(long storeId, long productId, Collection<Long> ownCartItemIds) {
+        if (!enabled) {
+            return 0;
+        }
+        HoldKey key = new HoldKey(storeId, productId);
+        int own = 0;
+        for (Long cartItemId : ownCartItemIds) {
+            Hold hold = holdsByCartItem.get(cartItemId);
+            if (hold != null && hold.key().equals(key)) {
+                own += hold.quantity();
+            }
+        }
+        return Math.max(0, heldByStock.getOrDefault(key, 0) - own);
+    }
+
+    // (Re)places the hold for a saved cart item: as many of its units as are not already held by
+    // other carts, for one TTL from now. stock is the current inventories.stock of the item's store.
+    // The units are taken at once and given back if the cart transaction rolls back.
+    public void hold(CartItem cartItem, int stock) {
+        if (!enabled || cartItem.getId() == null) {
+            return;
+        }
+        HoldKey key = new HoldKey(cartItem.getStore().getStoreId(), cartItem.getProduct().getProductId());
+        if (hotStockService.isHot(key.storeId(), key.productId())) {
+            cartItem.setHeldQuantity(0);
+            cartItem.setHoldExpiresAt(null);
+            releaseAfterCommit(List.of(cartItem.getId()));
+            return;
+        }
+
+        long cartItemId = cartItem.getId();
+        Instant expiresAt = Instant.now().plus(ttl);
+        Hold[] previous = new Hold[1];
+        Hold[] placed = new Hold[1];
+        heldByStock.compute(key, (k, total) -> {
+            Hold current = holdsByCartItem.get(cartItemId);
+            int others = (total != null ? total : 0) - (current != null ? current.quantity() : 0);
+            int quantity = Math.max(0, Math.min(cartItem.getQuantity(), stock - others));
+            previous[0] = current;
+            if (quantity > 0) {
+                placed[0] = new Hold(cartItemId, key, quantity, expiresAt);
+                holdsByCartItem.put(cartItemId, placed[0]);
+            } else {
+                holdsByCartItem.remove(cartItemId);
+            }
+            return others + quantity > 0 ? others + quantity : null;
+        });
+        if (placed[0] != null) {
+            expiries.put(placed[0]);
+        }
+
+        cartItem.setHeldQuantity(placed[0] != null ? placed[0].quantity() : 0);
+        cartItem.setHoldExpiresAt(placed[0] != null ? expiresAt : null);
+        afterRollback(() -> restore(key, cartItemId, placed[0], previous[0]));
+    }
+
+    public void release(Long cartItemId) {
+        if (!enabled) {
+            return;
+        }
+        Hold current = holdsByCartItem.get(cartItemId);
+        if (current != null) {
+            replace(current.key(), cartItemId, current, null);
+        }
+    }
+
+    public void releaseAfterCommit(Collection<Long> cartItemIds) {
+        if (enabled && !cartItemIds.isEmpty()) {
+            afterCommit(() -> cartItemIds.forEach(this::release));
+        }
+    }
+
+    // Startup reload; nothing else holds these items yet
+    private void put(Hold hold) {
+        heldByStock.merge(hold.key(), hold.quantity(), Integer::sum);
+        holdsByCartItem.put(hold.cartItemId(), hold);
+        expiries.put(hold);
+    }
+
+    // The cart write rolled back: the database still has the previous hold, so the previous hold comes
+    // back, unless it has run out in the meantime
+    private void restore(HoldKey key, long cartItemId, Hold placed, Hold previous) {
+        Hold live = previous != null && previous.expiresAt().isAfter(Instant.now()) ? previous : null;
+        replace(key, cartItemId, placed, live);
+        if (live != null) {
+            expiries.put(live);
+        }
+    }
+
+    // Swaps the item's hold from expected to replacement (null removes it), unless it changed meanwhile.
+    // Runs inside compute on the (store, product) total, like every other change to its holds.
+    private void replace(HoldKey key, long cartItemId, Hold expected, Hold replacement) {
+        heldByStock.compute(key, (k, total) -> {
+            int sum = total != null ? total : 0;
+            if (!Objects.equals(holdsByCartItem.get(cartItemId), expected)) {
+                return total;
+            }
+            if (expected != null) {
+                sum -= expected.quantity();
+            }
+            if (replacement != null) {
+                holdsByCartItem.put(cartItemId, replacement);
+                sum += replacement.quantity();
+            } else {
+                holdsByCartItem.remove(cartItemId);
+            }
+            return sum > 0 ? sum : null;
+        });
+    }
+
+    private void expireLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Hold due = expiries.take();
+                // Only if this is still the item's current hold; renewed or released holds leave stale entries
+                replace(due.key(), due.cartItemId(), due, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Releases follow the cart transaction: a removal that rolled back keeps its hold
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private record HoldKey(long storeId, long productId) {
+    }
+
+    private record Hold(long cartItemId, HoldKey key, int quantity, Instant expiresAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), expiresAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return expiresAt.compareTo(((Hold) other).expiresAt);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.certaint.curevo.entity.Product;
 import com.certaint.curevo.entity.Store;
 import com.certaint.curevo.exception.ResourceNotFoundException;
 import com.certaint.curevo.repository.CartItemRepository;
+import com.certaint.curevo.repository.InventoryRepository;
 import com.certaint.curevo.repository.ProductRepository;
 import com.certaint.curevo.repository.StoreRepository;
 import jakarta.transaction.Transactional;
@@ -26,6 +27,8 @@ public class CartItemService {
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final StoreRepository storeRepository;
+    private final InventoryRepository inventoryRepository;
+    private final CartHoldService cartHoldService;
 
     public CartItem addToCart(Customer customer, Long productId, Long storeId) {
         Product product = productRepository.findById(productId)
@@ -43,6 +46,7 @@ public class CartItemService {
             existingCartItem.setQuantity(existingCartItem.getQuantity() + quantity);
             existingCartItem.setAddedAt(Instant.now());
             cartItemRepository.save(existingCartItem);
+            refreshHold(existingCartItem);
             return existingCartItem;
         } else {
             CartItem newCartItem = new CartItem();
@@ -52,6 +56,7 @@ public class CartItemService {
             newCartItem.setQuantity(quantity);
             newCartItem.setAddedAt(Instant.now());
             cartItemRepository.save(newCartItem);
+            refreshHold(newCartItem);
             return newCartItem;
         }
     }
@@ -69,11 +74,13 @@ public class CartItemService {
         }
 
         cartItemRepository.delete(cartItem);
+        cartHoldService.releaseAfterCommit(List.of(cartItem.getId()));
     }
 
     public void clearCart(Customer customer) {
         List<CartItem> items = cartItemRepository.findAllByCustomer(customer);
         cartItemRepository.deleteAll(items);
+        cartHoldService.releaseAfterCommit(items.stream().map(CartItem::getId).toList());
     }
 
     // --- UPDATED METHOD: decreaseQuantity ---
@@ -90,10 +97,12 @@ public class CartItemService {
         if (cartItem.getQuantity() > 1) {
             cartItem.setQuantity(cartItem.getQuantity() - 1);
             CartItem updatedItem = cartItemRepository.save(cartItem);
+            refreshHold(updatedItem);
             // Return CartResponse indicating item is still in cart with its updated quantity
             return new CartResponse(true, updatedItem);
         } else {
             cartItemRepository.delete(cartItem);
+            cartHoldService.releaseAfterCommit(List.of(cartItem.getId()));
             // Return CartResponse indicating item is no longer in cart
             return new CartResponse(false, null);
         }
@@ -130,12 +139,30 @@ public class CartItemService {
 
         cartItem.setQuantity(newQuantity);
         cartItem.setAddedAt(Instant.now());
-        return cartItemRepository.save(cartItem);
+        CartItem savedItem = cartItemRepository.save(cartItem);
+        refreshHold(savedItem);
+        return savedItem;
     }
 
 
     public void clearCartForCustomer(Customer customer) {
+        if (cartHoldService.isEnabled()) {
+            cartHoldService.releaseAfterCommit(cartItemRepository.findAllByCustomer(customer).stream()
+                    .map(CartItem::getId)
+                    .toList());
+        }
         cartItemRepository.deleteAllByCustomer(customer);
     }
 
+    // Every change to a cart line renews its hold for another TTL, sized against the store's current stock
+    private void refreshHold(CartItem cartItem) {
+        if (!cartHoldService.isEnabled()) {
+            return;
+        }
+        int stock = inventoryRepository.findByProductAndStore(cartItem.getProduct(), cartItem.getStore())
+                .map(inventory -> inventory.getStock() != null ? inventory.getStock() : 0)
+                .orElse(0);
+        cartHoldService.hold(cartItem, stock);
+    }
+
 }
\ No newline at end of file
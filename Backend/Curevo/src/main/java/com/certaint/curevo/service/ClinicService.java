@@ -2,6 +2,7 @@ package com.certaint.curevo.service;
 
 import com.certaint.curevo.entity.Clinic;
 import com.certaint.curevo.repository.ClinicRepository;
+import com.certaint.curevo.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -24,6 +25,12 @@ public class ClinicService {
         return clinicRepository.findById(id);
     }
 
+    public List<Clinic> getClinicsWithinRadius(double userLat, double userLon, double radiusKm) {
+        double boundedRadiusKm = Math.min(radiusKm, GeoUtils.MAX_DISTANCE_KM);
+        return clinicRepository.findClinicsWithinRadius(userLat, userLon, boundedRadiusKm,
+                GeoUtils.boundingBoxWkt(userLat, userLon, boundedRadiusKm));
+    }
+
     public Clinic createClinic(Clinic clinic) {
         return clinicRepository.save(clinic);
     }
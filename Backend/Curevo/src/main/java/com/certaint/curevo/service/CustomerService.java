@@ -114,11 +114,10 @@ public class CustomerService {
             }
 
             if(image != null && !image.isEmpty()) {
-                if (existingCustomer.getImage()!= null ) {
-                    imageHostingService.deleteImage(existingCustomer.getImage());
-                }
-                    String imageUrl = imageHostingService.uploadImage(image,"customers");
-                    existingCustomer.setImage(imageUrl);
+                String oldImageUrl = existingCustomer.getImage();
+                String imageUrl = imageHostingService.uploadImage(image,"customers");
+                existingCustomer.setImage(imageUrl);
+                imageHostingService.deleteAfterCommit(oldImageUrl);
             }
 
             return Optional.of(customerRepository.save(existingCustomer));
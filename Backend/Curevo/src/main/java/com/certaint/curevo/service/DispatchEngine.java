@@ -0,0 +1,181 @@
+package com.certaint.curevo.service;
+
+import com.certaint.curevo.dto.ExecutiveLoad;
+import com.certaint.curevo.entity.DeliveryExecutive;
+import com.certaint.curevo.entity.Order;
+import com.certaint.curevo.entity.OrderItem;
+import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.enums.DeliveryExecutiveStatus;
+import com.certaint.curevo.repository.DeliveryAssignmentRepository;
+import com.certaint.curevo.repository.DeliveryExecutiveRepository;
+import com.certaint.curevo.service.index.ExecutiveGeoIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.certaint.curevo.enums.DeliveryAssignmentStatus.CURRENT;
+import static com.certaint.curevo.enums.DeliveryAssignmentStatus.PENDING;
+
+// Picks the delivery executive for an order. Candidates are scored by how far they are from the pickup
+// point (the store the order is fulfilled from, or the delivery address when that is unknown) plus a
+// penalty per delivery they already carry, and the lowest score wins. Everything needed for the choice
+// (positions, who is available, open assignments) is held in memory, so a dispatch decision is a
+// short grid walk in ExecutiveGeoIndex rather than a round of queries. ExecutiveService reports every
+// change it makes (assignment counts once they commit); a periodic resync from the database corrects anything missed.
+@Service
+@RequiredArgsConstructor
+public class DispatchEngine {
+
+    private final DeliveryExecutiveRepository executiveRepo;
+    private final DeliveryAssignmentRepository assignmentRepo;
+    private final ExecutiveGeoIndex executiveGeoIndex;
+
+    // Every executive in the database; positions are only accepted for these
+    private final Set<Long> known = ConcurrentHashMap.newKeySet();
+    private final Set<Long> available = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Integer> openAssignments = new ConcurrentHashMap<>();
+
+    // Executives further than this from the pickup point are not considered
+    @Value("${curevo.dispatch.max-radius-km:25}")
+    private double maxRadiusKm;
+
+    // Each delivery already on an executive's plate counts as this many extra kilometres
+    @Value("${curevo.dispatch.load-penalty-km:2.0}")
+    private double loadPenaltyKm;
+
+    // Positions older than this are treated as unknown
+    @Value("${curevo.dispatch.position-ttl:15m}")
+    private Duration positionTtl;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${curevo.dispatch.resync-interval-ms:60000}",
+            initialDelayString = "${curevo.dispatch.resync-interval-ms:60000}")
+    public void resync() {
+        List<DeliveryExecutive> executives = executiveRepo.findAll();
+        Set<Long> ids = executives.stream().map(DeliveryExecutive::getId).collect(Collectors.toSet());
+        for (Long executiveId : known) {
+            if (!ids.contains(executiveId)) {
+                // Deleted without going through ExecutiveService
+                onExecutiveRemoved(executiveId);
+            }
+        }
+        for (DeliveryExecutive executive : executives) {
+            onStatusChanged(executive.getId(), executive.getStatus());
+            if (executive.getLastLatitude() != null && executive.getLastLongitude() != null
+                    && executive.getLocationUpdatedAt() != null) {
+                // Newest wins, so this never overwrites a fresher fix that has not been persisted yet
+                executiveGeoIndex.update(executive.getId(), executive.getLastLatitude(),
+                        executive.getLastLongitude(), executive.getLocationUpdatedAt());
+            }
+        }
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (ExecutiveLoad load : assignmentRepo.countByStatusInGroupByExecutive(List.of(CURRENT, PENDING))) {
+            counts.put(load.getExecutiveId(), load.getOpenAssignments().intValue());
+        }
+        openAssignments.keySet().retainAll(counts.keySet());
+        openAssignments.putAll(counts);
+    }
+
+    // Reported for every executive that is saved, so new registrations become known here
+    public void onStatusChanged(Long executiveId, DeliveryExecutiveStatus status) {
+        known.add(executiveId);
+        if (status == DeliveryExecutiveStatus.AVAILABLE) {
+            available.add(executiveId);
+        } else {
+            available.remove(executiveId);
+        }
+    }
+
+    public void onExecutiveRemoved(Long executiveId) {
+        known.remove(executiveId);
+        available.remove(executiveId);
+        openAssignments.remove(executiveId);
+        executiveGeoIndex.remove(executiveId);
+    }
+
+    public void onAssigned(Long executiveId) {
+        openAssignments.merge(executiveId, 1, Integer::sum);
+    }
+
+    public void onAssignmentClosed(Long executiveId) {
+        openAssignments.computeIfPresent(executiveId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Newest wins; returns whether the fix was applied. Fixes for unknown executives are dropped.
+    public boolean updatePosition(Long executiveId, double lat, double lon, Instant recordedAt) {
+        return known.contains(executiveId) && executiveGeoIndex.update(executiveId, lat, lon, recordedAt);
+    }
+
+    // Best executive for the order, skipping the excluded ones (e.g. candidates the caller found stale).
+    // Executives without a recent position are only used when nobody with one is in range.
+    public Optional<Long> selectExecutive(Order order, int maxOpenAssignments, Collection<Long> excluded) {
+        double[] pickup = pickupPoint(order);
+        Instant freshSince = Instant.now().minus(positionTtl);
+
+        if (pickup != null) {
+            Optional<ExecutiveGeoIndex.Match> match = executiveGeoIndex.best(pickup[0], pickup[1], maxRadiusKm, freshSince,
+                    id -> isEligible(id, maxOpenAssignments, excluded),
+                    id -> loadPenaltyKm * openAssignments.getOrDefault(id, 0));
+            if (match.isPresent()) {
+                return Optional.of(match.get().executiveId());
+            }
+        }
+
+        // No position to go by: least loaded available executive
+        Long best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (Long id : available) {
+            if (!isEligible(id, maxOpenAssignments, excluded)) {
+                continue;
+            }
+            if (pickup != null && executiveGeoIndex.get(id)
+                    .filter(position -> !position.recordedAt().isBefore(freshSince)).isPresent()) {
+                // Has a fresh position but is out of range
+                continue;
+            }
+            int load = openAssignments.getOrDefault(id, 0);
+            if (load < bestLoad || (load == bestLoad && id < best)) {
+                best = id;
+                bestLoad = load;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private boolean isEligible(long executiveId, int maxOpenAssignments, Collection<Long> excluded) {
+        return available.contains(executiveId)
+                && openAssignments.getOrDefault(executiveId, 0) < maxOpenAssignments
+                && !excluded.contains(executiveId);
+    }
+
+    // The store the order's items were reserved from, else the delivery address; null when neither is known
+    private static double[] pickupPoint(Order order) {
+        if (order.getOrderItems() != null) {
+            for (OrderItem item : order.getOrderItems()) {
+                Store store = item.getStore();
+                if (store != null && store.getLatitude() != null && store.getLongitude() != null) {
+                    return new double[]{store.getLatitude(), store.getLongitude()};
+                }
+            }
+        }
+        if (order.getDeliveryLat() != null && order.getDeliveryLng() != null) {
+            return new double[]{order.getDeliveryLat(), order.getDeliveryLng()};
+        }
+        return null;
+    }
+}
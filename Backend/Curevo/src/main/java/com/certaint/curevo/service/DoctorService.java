@@ -1,6 +1,9 @@
 package com.certaint.curevo.service;
 
+import com.certaint.curevo.dto.CursorPage;
 import com.certaint.curevo.dto.DoctorAvailabilityDTO;
+import com.certaint.curevo.dto.PopularityCount;
+import com.certaint.curevo.dto.SuggestionDTO;
 import com.certaint.curevo.dto.DoctorDTO;
 import com.certaint.curevo.dto.UserDTO;
 import com.certaint.curevo.entity.Doctor;
@@ -9,21 +12,33 @@ import com.certaint.curevo.entity.Product;
 import com.certaint.curevo.entity.User;
 import com.certaint.curevo.enums.Role;
 import com.certaint.curevo.enums.Specialization;
+import com.certaint.curevo.event.DoctorChangedEvent;
+import com.certaint.curevo.event.DoctorDeletedEvent;
 import com.certaint.curevo.exception.DoctorNotFoundException;
+import com.certaint.curevo.repository.AppointmentRepository;
 import com.certaint.curevo.repository.DoctorAvailabilityRepository;
 import com.certaint.curevo.repository.DoctorRepository;
 import com.certaint.curevo.service.ImageHostingService;
+import com.certaint.curevo.service.media.ImageVariants;
 import com.certaint.curevo.service.UserService;
-import jakarta.transaction.Transactional;
+import com.certaint.curevo.service.index.DoctorSuggestIndex;
+import com.certaint.curevo.util.CursorCodec;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -36,9 +51,37 @@ public class DoctorService {
     private final DoctorAvailabilityRepository availabilityRepository;
     private final ImageHostingService imageHostingService;
     private final PasswordEncoder passwordEncoder;
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorSuggestIndex doctorSuggestIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Load doctor names, ranked by appointments booked, into the autocomplete trie once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshSuggestIndex() {
+        Map<Long, String> names = new HashMap<>();
+        for (DoctorRepository.DoctorName doctor : doctorRepository.findAllNames()) {
+            names.put(doctor.getDoctorId(), doctor.getName());
+        }
+        Map<Long, Long> appointmentCounts = appointmentRepository.countAppointmentsByDoctor().stream()
+                .collect(Collectors.toMap(PopularityCount::getId, PopularityCount::getScore));
+        doctorSuggestIndex.rebuild(names, appointmentCounts);
+    }
+
+    // Top completions for what has been typed so far, most booked doctors first
+    public List<SuggestionDTO> suggestDoctors(String prefix, int limit) {
+        return doctorSuggestIndex.suggest(prefix, limit).stream()
+                .map(completion -> new SuggestionDTO(completion.id(), completion.text()))
+                .collect(Collectors.toList());
+    }
 
-    @Transactional
+    // Image uploads happen before the transaction, see ImageHostingService.attachInTransaction
     public Doctor saveDoctor(Doctor doctor, MultipartFile imageFile) {
+        List<String> uploads = new ArrayList<>();
+        ImageVariants image = imageHostingService.stageImageVariants(uploads, "doctors", imageFile).get(0);
+        return imageHostingService.attachInTransaction(uploads, () -> insertDoctor(doctor, image));
+    }
+
+    private Doctor insertDoctor(Doctor doctor, ImageVariants image) {
         User user = doctor.getUser();
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setRole(Role.valueOf("DOCTOR"));
@@ -47,9 +90,8 @@ public class DoctorService {
 
         doctor.setUser(savedUser);
 
-        if (imageFile != null && !imageFile.isEmpty()) {
-            String imageUrl = imageHostingService.uploadImage(imageFile, "doctors");
-            doctor.setImage(imageUrl);
+        if (image != null) {
+            setImages(doctor, image);
         }
 
         Doctor savedDoctor = doctorRepository.save(doctor);
@@ -61,6 +103,8 @@ public class DoctorService {
             }
         }
 
+        // Picked up by the autocomplete index once the transaction commits
+        eventPublisher.publishEvent(new DoctorChangedEvent(savedDoctor.getDoctorId(), savedDoctor.getName()));
         return savedDoctor;
     }
 
@@ -72,32 +116,67 @@ public class DoctorService {
         return doctorRepository.findByNameContainingIgnoreCase(keyword, pageable);
     }
 
+    // Cursor variants of the two listings above: they seek past the last seen row instead of skipping
+    // an offset, fetch one extra row to know if there is a next page and only count when asked to
+    public CursorPage<Doctor> getDoctorsByCursor(String cursor, int size, boolean includeTotal) {
+        long afterDoctorId = cursor != null ? CursorCodec.decode(cursor).id() : 0L;
+        List<Doctor> doctors = doctorRepository.findByDoctorIdGreaterThanOrderByDoctorIdAsc(afterDoctorId, PageRequest.of(0, size + 1));
+        Long total = includeTotal ? doctorRepository.count() : null;
+        return CursorPage.of(doctors, size, doctor -> CursorCodec.encode("", doctor.getDoctorId()), total);
+    }
+
+    public CursorPage<Doctor> searchDoctorsByCursor(String keyword, String cursor, int size, boolean includeTotal) {
+        String afterName = "";
+        long afterDoctorId = 0L;
+        if (cursor != null) {
+            CursorCodec.Cursor decoded = CursorCodec.decode(cursor);
+            afterName = decoded.sortKey();
+            afterDoctorId = decoded.id();
+        }
+        List<Doctor> doctors = doctorRepository.searchByNameAfter(keyword, afterName, afterDoctorId, PageRequest.of(0, size + 1));
+        Long total = includeTotal ? doctorRepository.countByNameContainingIgnoreCase(keyword) : null;
+        return CursorPage.of(doctors, size, doctor -> CursorCodec.encode(doctor.getName(), doctor.getDoctorId()), total);
+    }
+
     public Doctor getDoctorById(Long id) {
         return doctorRepository.findById(id)
                 .orElseThrow(() -> new DoctorNotFoundException("Doctor not found with id: " + id));
     }
 
-    @Transactional
     public Doctor updateDoctor(Long doctorId, Doctor updatedDoctor, MultipartFile imageFile) {
+        // Fail fast before uploading anything for a doctor that does not exist
+        if (!doctorRepository.existsById(doctorId)) {
+            throw new DoctorNotFoundException("Doctor not found with id: " + doctorId);
+        }
+        List<String> uploads = new ArrayList<>();
+        ImageVariants newImage = imageHostingService.stageImageVariants(uploads, "doctors", imageFile).get(0);
+        return imageHostingService.attachInTransaction(uploads, () -> applyDoctorUpdate(doctorId, updatedDoctor, newImage));
+    }
+
+    private static void setImages(Doctor doctor, ImageVariants image) {
+        doctor.setImage(image.full());
+        doctor.setCardImage(image.card());
+        doctor.setThumbnailImage(image.thumbnail());
+    }
+
+    private Doctor applyDoctorUpdate(Long doctorId, Doctor updatedDoctor, ImageVariants newImage) {
         Doctor existingDoctor = doctorRepository.findById(doctorId)
                 .orElseThrow(() -> new DoctorNotFoundException("Doctor not found with id: " + doctorId));
 
-        // Get the current image URL from the database, this will be preserved if no new image is provided
+        // Get the current image URLs from the database, these will be preserved if no new image is provided
         String oldImageUrl = existingDoctor.getImage();
+        String oldCardImageUrl = existingDoctor.getCardImage();
+        String oldThumbnailImageUrl = existingDoctor.getThumbnailImage();
 
         existingDoctor.setName(updatedDoctor.getName());
         existingDoctor.setSpecialization(updatedDoctor.getSpecialization());
         existingDoctor.setQualification(updatedDoctor.getQualification());
 
-        // --- Simplified Image Handling Logic: Only act if a new image file is provided ---
-        if (imageFile != null && !imageFile.isEmpty()) {
-            // A new image file is provided.
-            // First, delete the old image if it exists.
-            if (oldImageUrl != null && !oldImageUrl.isEmpty()) {
-                imageHostingService.deleteImage(oldImageUrl);
-            }
-            String newImageUrl = imageHostingService.uploadImage(imageFile, "doctors");
-            existingDoctor.setImage(newImageUrl);
+        // --- Simplified Image Handling Logic: Only act if a new image was uploaded ---
+        if (newImage != null) {
+            setImages(existingDoctor, newImage);
+            // The old images go only once the new URLs are committed
+            imageHostingService.deleteAfterCommit(oldImageUrl, oldCardImageUrl, oldThumbnailImageUrl);
         }
 
 
@@ -138,18 +217,20 @@ public class DoctorService {
             existingDoctor.getAvailabilities().clear();
         }
 
-        return doctorRepository.save(existingDoctor);
+        Doctor savedDoctor = doctorRepository.save(existingDoctor);
+        eventPublisher.publishEvent(new DoctorChangedEvent(savedDoctor.getDoctorId(), savedDoctor.getName()));
+        return savedDoctor;
     }
 
     public void deleteDoctor(Long id) {
         Doctor doctorToDelete = doctorRepository.findById(id)
                 .orElseThrow(() -> new DoctorNotFoundException("Doctor not found with id: " + id));
 
-        // Delete associated image from Cloudinary
-        if (doctorToDelete.getImage() != null && !doctorToDelete.getImage().isEmpty()) {
-            imageHostingService.deleteImage(doctorToDelete.getImage());
-        }
         doctorRepository.deleteById(id);
+        // Delete the associated images (every size) from the image host in the background
+        imageHostingService.deleteAfterCommit(doctorToDelete.getImage(), doctorToDelete.getCardImage(),
+                doctorToDelete.getThumbnailImage());
+        eventPublisher.publishEvent(new DoctorDeletedEvent(id));
     }
 
     public List<Doctor> getAllDoctorsList() {
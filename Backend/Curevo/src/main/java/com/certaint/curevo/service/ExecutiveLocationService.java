@@ -0,0 +1,167 @@
+package com.certaint.curevo.service;
+
+import com.certaint.curevo.dto.ExecutiveLocationDTO;
+import com.certaint.curevo.entity.DeliveryExecutive;
+import com.certaint.curevo.repository.DeliveryExecutiveRepository;
+import com.certaint.curevo.service.index.ExecutiveGeoIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ingests the live positions of delivery executives. The newest fix of each executive lives in
+// ExecutiveGeoIndex (via DispatchEngine, newest fix wins, late pings are dropped), so ingesting a ping
+// never touches the database or takes a lock; this service only remembers which executives moved. Their
+// last fix is written to delivery_executives on a coarse interval in one JDBC batch, which is all the
+// database needs to seed dispatch again after a restart. Pings for executives the engine does not know
+// (deleted, or an admin relay naming a wrong id) are dropped.
+@Service
+@RequiredArgsConstructor
+public class ExecutiveLocationService {
+
+    private static final int FLUSH_BATCH_ROWS = 500;
+
+    private final DeliveryExecutiveRepository executiveRepo;
+    private final DispatchEngine dispatchEngine;
+    private final ExecutiveGeoIndex executiveGeoIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Executives whose position changed since the last flush; removed by the flush that writes them
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> executiveIdsByEmail = new ConcurrentHashMap<>();
+
+    @Value("${curevo.executive-location.max-batch-size:500}")
+    private int maxBatchSize;
+
+    // Executive behind the authenticated user; cached because every ping would otherwise cost a query
+    public Long executiveIdForEmail(String email) {
+        Long cached = executiveIdsByEmail.get(email);
+        if (cached != null) {
+            return cached;
+        }
+        DeliveryExecutive executive = executiveRepo.getDeliveryExecutiveByUserEmail(email);
+        if (executive == null) {
+            throw new RuntimeException("Delivery Executive not found.");
+        }
+        executiveIdsByEmail.put(email, executive.getId());
+        return executive.getId();
+    }
+
+    // Called by ExecutiveService once an executive behind this email was registered, changed or removed
+    public void evictEmail(String email) {
+        if (email != null) {
+            executiveIdsByEmail.remove(email);
+        }
+    }
+
+    // Applies a batch of pings; reportingExecutiveId is the caller's own id, or null for an admin relay where
+    // every ping names its executive. Returns how many pings moved an executive's latest position.
+    public int ingest(Long reportingExecutiveId, List<ExecutiveLocationDTO> pings) {
+        if (pings == null || pings.isEmpty()) {
+            return 0;
+        }
+        if (pings.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " positions per request");
+        }
+        // The whole batch is checked first so a bad ping never leaves it half applied
+        for (ExecutiveLocationDTO ping : pings) {
+            if (reportingExecutiveId == null && ping.getExecutiveId() == null) {
+                throw new IllegalArgumentException("executiveId is required for each position");
+            }
+            validate(ping);
+        }
+
+        long now = System.currentTimeMillis();
+        int applied = 0;
+        for (ExecutiveLocationDTO ping : pings) {
+            Long executiveId = reportingExecutiveId != null ? reportingExecutiveId : ping.getExecutiveId();
+            // A device clock running ahead is clamped to server time, otherwise its fixes would win over every later one
+            long recordedAt = ping.getRecordedAt() == null ? now : Math.min(ping.getRecordedAt(), now);
+            if (dispatchEngine.updatePosition(executiveId, ping.getLatitude(), ping.getLongitude(),
+                    Instant.ofEpochMilli(recordedAt))) {
+                dirty.add(executiveId);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private static void validate(ExecutiveLocationDTO ping) {
+        Double lat = ping.getLatitude();
+        Double lon = ping.getLongitude();
+        if (lat == null || lon == null || lat.isNaN() || lon.isNaN()
+                || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new IllegalArgumentException("Invalid coordinates: " + lat + ", " + lon);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${curevo.executive-location.flush-interval-ms:30000}")
+    public void flushScheduled() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Executive location flush failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushScheduled();
+    }
+
+    // Writes the latest fix of every executive that moved since the last flush. The id is taken out of the
+    // dirty set before its position is read, so a ping arriving mid-flush is either written now or flagged
+    // for the next one.
+    public synchronized int flush() {
+        List<Object[]> batch = new ArrayList<>(FLUSH_BATCH_ROWS);
+        List<Long> batchIds = new ArrayList<>(FLUSH_BATCH_ROWS);
+        int written = 0;
+        for (Long executiveId : dirty) {
+            if (!dirty.remove(executiveId)) {
+                continue;
+            }
+            Optional<ExecutiveGeoIndex.Position> position = executiveGeoIndex.get(executiveId);
+            if (position.isEmpty()) {
+                // Removed in the meantime
+                continue;
+            }
+            Timestamp recordedAt = Timestamp.from(position.get().recordedAt());
+            batch.add(new Object[]{position.get().lat(), position.get().lon(), recordedAt, executiveId, recordedAt});
+            batchIds.add(executiveId);
+            if (batch.size() == FLUSH_BATCH_ROWS) {
+                written += writeBatch(batch, batchIds);
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += writeBatch(batch, batchIds);
+        }
+        return written;
+    }
+
+    private int writeBatch(List<Object[]> batch, List<Long> batchIds) {
+        try {
+            // The guard keeps an older fix from overwriting a newer one written by another node
+            jdbcTemplate.batchUpdate("UPDATE delivery_executives SET last_latitude = ?, last_longitude = ?, " +
+                    "location_updated_at = ? WHERE id = ? AND (location_updated_at IS NULL OR location_updated_at < ?)", batch);
+            return batch.size();
+        } catch (RuntimeException e) {
+            // Try again on the next flush
+            dirty.addAll(batchIds);
+            throw e;
+        } finally {
+            batch.clear();
+            batchIds.clear();
+        }
+    }
+}
@@ -13,13 +13,17 @@ import com.certaint.curevo.security.JwtService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.certaint.curevo.enums.DeliveryExecutiveStatus.*;
@@ -41,22 +45,25 @@ public class ExecutiveService {
     private final EmailService emailService;
     private final CacheService cacheService;
     private final JwtService jwtservice;
+    private final DispatchEngine dispatchEngine;
+    private final ExecutiveLocationService executiveLocationService;
 
     private static final double PER_DELIVERY_FEE_INR = 40.0; // ₹50 per delivered order (adjust as needed)
 
+    private static final int MAX_OPEN_ASSIGNMENTS = 3;
+
+    // Engine candidates checked against the database before falling back to any available executive
+    private static final int MAX_DISPATCH_ATTEMPTS = 5;
+
 
     public void assignOrder(Order order) {
-        // 1️⃣ Find a suitable executive
-        Optional<DeliveryExecutive> availableExec = executiveRepo.findFirstByStatus(AVAILABLE);
-        if (availableExec.isEmpty()) {
-            throw new RuntimeException("No available delivery executive");
-        }
-        DeliveryExecutive executive = availableExec.get();
+        // 1️⃣ Find the closest, least busy executive (see DispatchEngine)
+        DeliveryExecutive executive = selectExecutive(order);
 
         // 2️⃣ Check if they have reached the max assignments
         if (hasReachedMaxAssignments(executive.getId())) {
             executive.setStatus(UNAVAILABLE);
-            executiveRepo.save(executive);
+            saveExecutive(executive);
             throw new RuntimeException("Executive has reached maximum assignments");
         }
 
@@ -76,6 +83,8 @@ public class ExecutiveService {
         }
 
         assignmentRepo.save(assignment);
+        Long executiveId = executive.getId();
+        afterCommit(() -> dispatchEngine.onAssigned(executiveId));
 
 
         order.setStatus(OrderStatus.ASSIGNED);
@@ -84,10 +93,59 @@ public class ExecutiveService {
 
         if (hasReachedMaxAssignments(executive.getId())) {
             executive.setStatus(UNAVAILABLE);
-            executiveRepo.save(executive);
+            saveExecutive(executive);
+        }
+    }
+
+    // The engine works from in-memory state, so its pick is confirmed against the database; a candidate whose
+    // status changed in the meantime is corrected in the engine and the next best one is tried
+    private DeliveryExecutive selectExecutive(Order order) {
+        Set<Long> rejected = new HashSet<>();
+        for (int attempt = 0; attempt < MAX_DISPATCH_ATTEMPTS; attempt++) {
+            Optional<Long> candidateId = dispatchEngine.selectExecutive(order, MAX_OPEN_ASSIGNMENTS, rejected);
+            if (candidateId.isEmpty()) {
+                break;
+            }
+            Optional<DeliveryExecutive> candidate = executiveRepo.findById(candidateId.get());
+            if (candidate.isEmpty()) {
+                dispatchEngine.onExecutiveRemoved(candidateId.get());
+            } else if (candidate.get().getStatus() != AVAILABLE) {
+                dispatchEngine.onStatusChanged(candidateId.get(), candidate.get().getStatus());
+            } else if (hasReachedMaxAssignments(candidateId.get())) {
+                candidate.get().setStatus(UNAVAILABLE);
+                saveExecutive(candidate.get());
+            } else {
+                return candidate.get();
+            }
+            rejected.add(candidateId.get());
+        }
+
+        // Nothing usable in the engine (e.g. state still being loaded at startup)
+        return executiveRepo.findFirstByStatus(AVAILABLE)
+                .orElseThrow(() -> new RuntimeException("No available delivery executive"));
+    }
+
+    // In-memory state (engine load counts, cached executive ids) only follows writes that committed. The
+    // dispatch path re-checks capacity against the database, so a pending assignment is never over-assigned.
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
+    private DeliveryExecutive saveExecutive(DeliveryExecutive executive) {
+        DeliveryExecutive savedExecutive = executiveRepo.save(executive);
+        dispatchEngine.onStatusChanged(savedExecutive.getId(), savedExecutive.getStatus());
+        return savedExecutive;
+    }
+
     public void startDay(Long executiveId) {
         DeliveryExecutive executive = executiveRepo.findById(executiveId)
                 .orElseThrow(() -> new RuntimeException("Executive not found"));
@@ -101,7 +159,7 @@ public class ExecutiveService {
         }
 
         // Step 3: Save the (potentially adjusted) status
-        executiveRepo.save(executive);
+        saveExecutive(executive);
 
         // Step 4: Try assigning pending orders now that this executive is available
         // This will only assign if their FINAL status is AVAILABLE
@@ -156,6 +214,7 @@ public class ExecutiveService {
         assignment.setStatus(DELIVERED);
         assignment.setActualDelivery(Instant.now()); // Set the actual delivery timestamp
         assignmentRepo.save(assignment);
+        afterCommit(() -> dispatchEngine.onAssignmentClosed(executiveId));
 
         Order order = assignment.getOrder(); // Get the Order object directly from the assignment
         if (order != null) { // Defensive check
@@ -166,7 +225,7 @@ public class ExecutiveService {
         // Check if executive can now take more orders
         if (executive.getStatus() == UNAVAILABLE && !hasReachedMaxAssignments(executive.getId())) {
             executive.setStatus(AVAILABLE);
-            executiveRepo.save(executive);
+            saveExecutive(executive);
         }
 
         // Try assigning pending orders
@@ -197,7 +256,7 @@ public class ExecutiveService {
         DeliveryExecutive executive = executiveRepo.findById(executiveId)
                 .orElseThrow(() -> new RuntimeException("Executive not found"));
         executive.setStatus(INACTIVE);
-        executiveRepo.save(executive);
+        saveExecutive(executive);
     }
 
 
@@ -205,7 +264,7 @@ public class ExecutiveService {
         DeliveryExecutive executive = executiveRepo.findById(executiveId)
                 .orElseThrow(() -> new RuntimeException("Executive not found"));
         executive.setStatus(MANUALLY_UNAVAILABLE);
-        executiveRepo.save(executive);
+        saveExecutive(executive);
     }
 
 
@@ -215,7 +274,7 @@ public class ExecutiveService {
         List<DeliveryAssignment> activeAssignments = assignmentRepo.findByExecutiveAndStatusIn(
                 executive, List.of(CURRENT, PENDING)
         );
-        return activeAssignments.size() >= 3;
+        return activeAssignments.size() >= MAX_OPEN_ASSIGNMENTS;
     }
 
     // Add this method to your ExecutiveService.java
@@ -227,7 +286,7 @@ public class ExecutiveService {
 
         if (executive.getStatus() == NOT_VERIFIED) {
             executive.setStatus(INACTIVE);
-            executiveRepo.save(executive);
+            saveExecutive(executive);
              emailService.sendExecutiveApprovalEmail(executive.getUser().getEmail(), executive.getName());
             return executive;
         } else {
@@ -246,15 +305,17 @@ public class ExecutiveService {
         }
 
 
+        String previousEmail = user.getEmail();
         user.setEmail(executiveDTO.getEmail());
         user.setPhone(executiveDTO.getPhone());
+        afterCommit(() -> executiveLocationService.evictEmail(previousEmail));
 
         userRepository.save(user);
 
         if (image != null && !image.isEmpty()) {
-            // Upload new image and update the URL
-            imageHostingService.deleteImage(executive.getImage());
+            // Upload the new image first; the old one is deleted only once the new URL is committed
             String imageUrl = imageHostingService.uploadImage(image, "executive");
+            imageHostingService.deleteAfterCommit(executive.getImage());
             executive.setImage(imageUrl);
         }
 
@@ -263,7 +324,7 @@ public class ExecutiveService {
         if (executiveDTO.getStatus() != null) {
             executive.setStatus(executiveDTO.getStatus());
         }
-        executiveRepo.save(executive);
+        saveExecutive(executive);
 
         ExecutiveDocument document = (ExecutiveDocument) executiveDocumentRepository.findByExecutive(executive)
                 .orElseThrow(() -> new RuntimeException("Executive Document not found for Executive ID: " + id));
@@ -322,7 +383,7 @@ public class ExecutiveService {
             // If saving fails, delete the previously uploaded image
             if (executiveDTO.getImageUrl() != null && !executiveDTO.getImageUrl().isEmpty()) {
                 try {
-                    imageHostingService.deleteImage(executiveDTO.getImageUrl());
+                    imageHostingService.deleteImageAsync(executiveDTO.getImageUrl());
                     System.out.println("Cleaned up orphaned image: " + executiveDTO.getImageUrl());
                     cacheService.evictCachedData(email);
                     System.out.println("Cleaned up cache for email: " + email);
@@ -360,7 +421,9 @@ public class ExecutiveService {
             if (executiveDTO.getImageUrl() != null && !executiveDTO.getImageUrl().isEmpty()) {
                 executive.setImage(executiveDTO.getImageUrl());
             }
-            executiveRepo.save(executive);
+            saveExecutive(executive);
+            // The email may have belonged to an executive that was removed earlier
+            afterCommit(() -> executiveLocationService.evictEmail(savedUser.getEmail()));
 
             // 3. Create ExecutiveDocument entity
             ExecutiveDocument document = new ExecutiveDocument();
@@ -400,22 +463,18 @@ public class ExecutiveService {
 
         // Delete executive record
         executiveRepo.delete(executive);
+        Long removedExecutiveId = executive.getId();
+        afterCommit(() -> dispatchEngine.onExecutiveRemoved(removedExecutiveId));
+        afterCommit(() -> executiveLocationService.evictEmail(executiveEmail));
 
         // Delete user record
         if (user != null) {
             userRepository.delete(user);
         }
 
-        // Delete image if exists
-        if (executive.getImage() != null && !executive.getImage().isEmpty()) {
-            try {
-                imageHostingService.deleteImage(executive.getImage());
-
-            } catch (RuntimeException e) {
-                System.err.println("Failed to delete image for executive ID: " + executiveId + ". Error: " + e.getMessage());
-                // Log this, but don't rethrow, as the primary action is the rejection and deletion
-            }
-        }
+        // Delete the image in the background once the rejection is committed; if that fails,
+        // MediaReconciler collects it because no row references it any more
+        imageHostingService.deleteAfterCommit(executive.getImage());
 
         // Send rejection email
         emailService.sendExecutiveRejectionEmail(executiveEmail, executiveName);
@@ -0,0 +1,247 @@
+package com.certaint.curevo.service;
+
+import com.certaint.curevo.event.InventoryStockChangedEvent;
+import com.certaint.curevo.util.StripedStockCounter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Flash-sale mode for inventory rows flagged hot_stock. Checkouts for those (store, product) pairs reserve
+// from an in-memory StripedStockCounter instead of locking the inventories row; the order items are marked
+// stock_deferred and a write-behind job subtracts them from inventories.stock in batches.
+//
+// The available level of a hot pair is always derived from the database as
+//     inventories.stock - SUM(order_items.quantity WHERE stock_deferred) - reservations not yet committed
+// so a restart (or any stock change made elsewhere) can rebuild the counter without handing out
+// units twice. Counters live in this JVM only: with hot mode on, checkouts for flagged SKUs must be
+// served by a single node.
+@Service
+@DependsOn("entityManagerFactory")
+public class HotStockService {
+
+    private static final int FLUSH_BATCH_ROWS = 5000;
+
+    private static final String FLUSH_SELECT_SQL =
+            "SELECT id, store_id, product_id, quantity FROM order_items WHERE stock_deferred = TRUE " +
+                    "ORDER BY store_id, product_id LIMIT " + FLUSH_BATCH_ROWS;
+
+    // The row lock waits for any checkout still decrementing this row through SQL
+    private static final String LOCKED_STOCK_SQL =
+            "SELECT COALESCE(stock, 0) FROM inventories WHERE store_id = ? AND product_id = ? FOR UPDATE";
+
+    private static final String DEFERRED_UNITS_SQL =
+            "SELECT COALESCE(SUM(quantity), 0) FROM order_items " +
+                    "WHERE stock_deferred = TRUE AND store_id = ? AND product_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<HotKey, HotCounter> counters = new ConcurrentHashMap<>();
+
+    @Value("${curevo.stock.hot-mode.enabled:false}")
+    private boolean enabled;
+
+    @Value("${curevo.stock.hot-mode.stripes:8}")
+    private int stripes;
+
+    public HotStockService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        // Reconciliation also runs from after-commit listeners, where joining the finished
+        // transaction would silently do nothing
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Runs before the web server accepts requests. Deferred units left by a previous run are applied to
+    // inventories.stock first, so the SQL checkout path never sees stock that was already sold.
+    @PostConstruct
+    public void loadCounters() {
+        try {
+            while (flushDeferred() == FLUSH_BATCH_ROWS) {
+                // keep going until the backlog is empty
+            }
+            if (!enabled) {
+                return;
+            }
+            jdbcTemplate.query("SELECT store_id, product_id FROM inventories WHERE hot_stock = TRUE",
+                    rs -> {
+                        activate(new HotKey(rs.getLong("store_id"), rs.getLong("product_id")));
+                    });
+        } catch (RuntimeException e) {
+            System.err.println("Could not load hot stock counters: " + e.getMessage());
+        }
+    }
+
+    public boolean isHot(long storeId, long productId) {
+        return enabled && counters.containsKey(new HotKey(storeId, productId));
+    }
+
+    // Takes units from the pair's counter. Must be called inside the checkout transaction: the units go
+    // back to the counter if it rolls back, and the caller marks the order items stock_deferred.
+    public boolean tryReserve(long storeId, long productId, int quantity) {
+        HotCounter counter = counters.get(new HotKey(storeId, productId));
+        if (counter == null) {
+            return false;
+        }
+        counter.inFlight.add(quantity);
+        if (!counter.stock.tryTake(quantity)) {
+            counter.inFlight.add(-quantity);
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    counter.stock.release(quantity);
+                }
+                counter.inFlight.add(-quantity);
+            }
+        });
+        return true;
+    }
+
+    public long available(long storeId, long productId) {
+        HotCounter counter = counters.get(new HotKey(storeId, productId));
+        return counter != null ? counter.stock.available() : 0;
+    }
+
+    // Turns flash-sale mode on or off for one inventory row
+    public void setHot(long storeId, long productId, boolean hot) {
+        int updated = jdbcTemplate.update("UPDATE inventories SET hot_stock = ? WHERE store_id = ? AND product_id = ?",
+                hot, storeId, productId);
+        if (updated == 0) {
+            throw new RuntimeException("Inventory not found for store " + storeId + " and product " + productId);
+        }
+        HotKey key = new HotKey(storeId, productId);
+        if (hot) {
+            if (enabled) {
+                activate(key);
+            }
+        } else {
+            HotCounter counter = counters.remove(key);
+            if (counter != null) {
+                counter.stock.retire();
+                flushAll();
+            }
+        }
+    }
+
+    // Stock set elsewhere (admin edits, bulk adjustments, cancellations) is folded back in. Our own flushes
+    // are skipped: they move units from the deferred sum into inventories.stock, which leaves the available
+    // level as it was, and reconciling would freeze the counter on every flush.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(InventoryStockChangedEvent event) {
+        if (event.deferredFlush()) {
+            return;
+        }
+        HotCounter counter = counters.get(new HotKey(event.storeId(), event.productId()));
+        if (counter != null) {
+            reconcile(new HotKey(event.storeId(), event.productId()), counter);
+        }
+    }
+
+    // Write-behind: subtracts deferred units from inventories.stock, a batch at a time
+    @Scheduled(fixedDelayString = "${curevo.stock.hot-mode.flush-interval-ms:500}")
+    public void flushScheduled() {
+        if (enabled || !counters.isEmpty()) {
+            flushAll();
+        }
+    }
+
+    private void flushAll() {
+        try {
+            while (flushDeferred() == FLUSH_BATCH_ROWS) {
+                // keep going until the backlog is empty
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Hot stock flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    // Returns the number of order items flushed
+    private synchronized int flushDeferred() {
+        Integer flushed = transactionTemplate.execute(status -> {
+            List<Long> itemIds = new ArrayList<>();
+            Map<HotKey, Integer> units = new TreeMap<>(
+                    Comparator.comparingLong(HotKey::storeId).thenComparingLong(HotKey::productId));
+            jdbcTemplate.query(FLUSH_SELECT_SQL, rs -> {
+                itemIds.add(rs.getLong("id"));
+                units.merge(new HotKey(rs.getLong("store_id"), rs.getLong("product_id")),
+                        rs.getInt("quantity"), Integer::sum);
+            });
+            if (itemIds.isEmpty()) {
+                return 0;
+            }
+
+            List<Map.Entry<HotKey, Integer>> lines = new ArrayList<>(units.entrySet());
+            jdbcTemplate.batchUpdate("UPDATE inventories SET stock = COALESCE(stock, 0) - ? WHERE store_id = ? AND product_id = ?",
+                    lines, lines.size(), (ps, line) -> {
+                        ps.setInt(1, line.getValue());
+                        ps.setLong(2, line.getKey().storeId());
+                        ps.setLong(3, line.getKey().productId());
+                    });
+            jdbcTemplate.batchUpdate("UPDATE order_items SET stock_deferred = FALSE WHERE id = ?",
+                    itemIds, itemIds.size(), (ps, id) -> ps.setLong(1, id));
+
+            for (HotKey key : units.keySet()) {
+                Integer stock = jdbcTemplate.queryForObject(
+                        "SELECT COALESCE(stock, 0) FROM inventories WHERE store_id = ? AND product_id = ? LIMIT 1",
+                        Integer.class, key.storeId(), key.productId());
+                eventPublisher.publishEvent(new InventoryStockChangedEvent(key.storeId(), key.productId(),
+                        stock != null ? stock : 0, true));
+            }
+            return itemIds.size();
+        });
+        return flushed != null ? flushed : 0;
+    }
+
+    private void activate(HotKey key) {
+        HotCounter counter = counters.computeIfAbsent(key, k -> new HotCounter(new StripedStockCounter(stripes)));
+        reconcile(key, counter);
+    }
+
+    // Rebuilds the counter from the database. The counter is emptied and frozen first; reservations that
+    // got in before that are either committed (counted in the deferred sum) or still in flight, and both
+    // are subtracted. Counting one twice can only undersell until the next reconcile, never oversell.
+    private void reconcile(HotKey key, HotCounter counter) {
+        counter.stock.refill(() -> transactionTemplate.execute(status -> {
+            long inFlight = counter.inFlight.sum();
+            List<Integer> stock = jdbcTemplate.queryForList(LOCKED_STOCK_SQL, Integer.class, key.storeId(), key.productId());
+            if (stock.isEmpty()) {
+                return 0L;
+            }
+            Long deferred = jdbcTemplate.queryForObject(DEFERRED_UNITS_SQL, Long.class, key.storeId(), key.productId());
+            return stock.get(0) - (deferred != null ? deferred : 0) - inFlight;
+        }));
+    }
+
+    private record HotKey(long storeId, long productId) {
+    }
+
+    // inFlight counts units taken from the counter whose checkout has not committed or rolled back yet
+    private record HotCounter(StripedStockCounter stock, LongAdder inFlight) {
+        HotCounter(StripedStockCounter stock) {
+            this(stock, new LongAdder());
+        }
+    }
+}
@@ -1,24 +1,301 @@
 package com.certaint.curevo.service;
 
+import com.certaint.curevo.enums.ImageVariant;
 import com.certaint.curevo.interfaces.ImageHostingProvider;
+import com.certaint.curevo.service.media.ImageVariantProcessor;
+import com.certaint.curevo.service.media.MediaReconciler;
+import com.certaint.curevo.service.media.ImageVariants;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 @Service
 public class ImageHostingService {
     private final ImageHostingProvider imageHostingProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor mediaExecutor;
+    private final Executor imageProcessingExecutor;
+    private final ImageVariantProcessor imageVariantProcessor;
+    private final MediaReconciler mediaReconciler;
+    // Owner-only directory for spooled uploads; names in it are never reused, so nothing else can sit at a target
+    private final Path spoolDirectory;
+
+    private static final int MAX_DELETE_ATTEMPTS = 4;
+    private static final long FIRST_RETRY_DELAY_MS = 1000;
 
-    public ImageHostingService(ImageHostingProvider imageHostingProvider) {
+    public ImageHostingService(ImageHostingProvider imageHostingProvider, TransactionTemplate transactionTemplate,
+                               @Qualifier("mediaExecutor") Executor mediaExecutor,
+                               @Qualifier("imageProcessingExecutor") Executor imageProcessingExecutor,
+                               ImageVariantProcessor imageVariantProcessor, MediaReconciler mediaReconciler) {
         this.imageHostingProvider = imageHostingProvider;
+        this.transactionTemplate = transactionTemplate;
+        this.mediaExecutor = mediaExecutor;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+        this.imageVariantProcessor = imageVariantProcessor;
+        this.mediaReconciler = mediaReconciler;
+        try {
+            this.spoolDirectory = Files.createTempDirectory("curevo-uploads-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the upload spool directory", e);
+        }
     }
 
+    // Uploads the full-size variant only: resized to at most 2048px and stripped of EXIF
     public String uploadImage(MultipartFile file, String folderName) {
-        return imageHostingProvider.uploadImage(file, folderName);
+        try {
+            return uploadImageAsync(file, folderName).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Decodes the upload once on the image pool, then uploads each requested variant in parallel on the
+    // media pool. Completes with null when there is no file. If one variant fails, the others are deleted.
+    public CompletableFuture<ImageVariants> uploadVariantsAsync(MultipartFile file, String folderName,
+                                                                Set<ImageVariant> variants) {
+        if (file == null || file.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> spoolAndProcess(file, variants), imageProcessingExecutor)
+                .thenCompose(processed -> uploadProcessed(processed, folderName));
+    }
+
+    private Processed spoolAndProcess(MultipartFile file, Set<ImageVariant> variants) {
+        Path spooled = spool(file);
+        try {
+            Map<ImageVariant, Path> files = imageVariantProcessor.process(spooled, variants);
+            if (files == null) {
+                // Not an image (e.g. a PDF prescription): it is uploaded untouched and owns the spooled file
+                return new Processed(spooled, Map.of());
+            }
+            deleteSpooled(spooled);
+            return new Processed(null, files);
+        } catch (RuntimeException e) {
+            deleteSpooled(spooled);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<ImageVariants> uploadProcessed(Processed processed, String folderName) {
+        if (processed.original() != null) {
+            return CompletableFuture.supplyAsync(
+                            () -> uploadTracked(processed.original(), folderName), mediaExecutor)
+                    .whenComplete((url, failure) -> deleteSpooled(processed.original()))
+                    .thenApply(ImageVariants::original);
+        }
+
+        Map<ImageVariant, CompletableFuture<String>> pending = new EnumMap<>(ImageVariant.class);
+        processed.variants().forEach((variant, path) -> pending.put(variant,
+                CompletableFuture.supplyAsync(() -> uploadTracked(path, folderName), mediaExecutor)
+                        .whenComplete((url, failure) -> deleteSpooled(path))));
+
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                .handle((ignored, failure) -> {
+                    if (failure != null) {
+                        pending.values().stream()
+                                .filter(upload -> !upload.isCompletedExceptionally())
+                                .forEach(upload -> deleteImageAsync(upload.join()));
+                        throw failure instanceof CompletionException completion ? completion : new CompletionException(failure);
+                    }
+                    return new ImageVariants(urlOf(pending, ImageVariant.FULL), urlOf(pending, ImageVariant.CARD),
+                            urlOf(pending, ImageVariant.THUMBNAIL));
+                });
+    }
+
+    // Every URL is recorded before anyone can reference it, so MediaReconciler can collect it if it ends up orphaned
+    private String uploadTracked(Path file, String folderName) {
+        String url = imageHostingProvider.uploadImage(file, folderName);
+        mediaReconciler.track(url, folderName);
+        return url;
+    }
+
+    private static String urlOf(Map<ImageVariant, CompletableFuture<String>> pending, ImageVariant variant) {
+        CompletableFuture<String> upload = pending.get(variant);
+        return upload == null ? null : upload.join();
+    }
+
+    // Either the untouched original (not a decodable image) or the encoded variant files, all temp files
+    private record Processed(Path original, Map<ImageVariant, Path> variants) {
+    }
+
+    // Moves the upload into a file of our own. transferTo(File) hands the path to the container's Part.write,
+    // which renames parts that are already on disk (above spring.servlet.multipart.file-size-threshold), so
+    // large uploads never pass through the heap; smaller ones are written out from memory.
+    private Path spool(MultipartFile file) {
+        try {
+            Files.createDirectories(spoolDirectory);
+            Path target = spoolDirectory.resolve(UUID.randomUUID() + extensionOf(file.getOriginalFilename()));
+            file.transferTo(target.toFile());
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spool upload " + file.getOriginalFilename(), e);
+        }
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null) {
+            return ".tmp";
+        }
+        int dot = filename.lastIndexOf('.');
+        String extension = dot >= 0 ? filename.substring(dot) : "";
+        return extension.matches("\\.[A-Za-z0-9]{1,10}") ? extension : ".tmp";
+    }
+
+    private static void deleteSpooled(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            System.err.println("Could not delete temp upload " + spooled + ": " + e.getMessage());
+        }
     }
 
     public String deleteImage(String imageUrl) {
-        return imageHostingProvider.deleteImage(imageUrl);
+        String result = imageHostingProvider.deleteImage(imageUrl);
+        mediaReconciler.untrack(imageUrl);
+        return result;
+    }
+
+    public CompletableFuture<String> uploadImageAsync(MultipartFile file, String folderName) {
+        return uploadVariantsAsync(file, folderName, EnumSet.of(ImageVariant.FULL))
+                .thenApply(variants -> variants == null ? null : variants.full());
+    }
+
+    // Fire-and-forget delete on the media pool, retried with exponential backoff
+    public CompletableFuture<Void> deleteImageAsync(String imageUrl) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return deleteWithRetry(imageUrl, 1, mediaExecutor);
     }
-}
 
+    private CompletableFuture<Void> deleteWithRetry(String imageUrl, int attempt, Executor executor) {
+        return CompletableFuture.runAsync(() -> deleteImage(imageUrl), executor)
+                .handle((ignored, failure) -> {
+                    if (failure == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    if (attempt >= MAX_DELETE_ATTEMPTS) {
+                        // Still tracked, so MediaReconciler retries it later
+                        System.err.println("Giving up deleting image " + imageUrl + " after " + attempt
+                                + " attempts: " + failure.getMessage());
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    long delay = FIRST_RETRY_DELAY_MS << (attempt - 1);
+                    return deleteWithRetry(imageUrl, attempt + 1,
+                            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, mediaExecutor));
+                })
+                .thenCompose(next -> next);
+    }
+
+    // Uploads the file if one was sent, and records its URL in uploads; null when there is nothing to upload
+    public String stageImage(MultipartFile file, String folderName, List<String> uploads) {
+        return stageImages(uploads, folderName, file).get(0);
+    }
+
+    // Uploads all given files in parallel and waits for them; one full-size URL per file, null where
+    // no file was sent. If any upload fails, the ones that succeeded are deleted and the failure is rethrown.
+    public List<String> stageImages(List<String> uploads, String folderName, MultipartFile... files) {
+        List<CompletableFuture<ImageVariants>> pending = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            pending.add(uploadVariantsAsync(file, folderName, EnumSet.of(ImageVariant.FULL)));
+        }
+        return awaitUploads(uploads, pending).stream()
+                .map(variants -> variants == null ? null : variants.full())
+                .toList();
+    }
 
+    // Same as stageImages, but each file is uploaded in every size (full, card and thumbnail)
+    public List<ImageVariants> stageImageVariants(List<String> uploads, String folderName, MultipartFile... files) {
+        List<CompletableFuture<ImageVariants>> pending = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            pending.add(uploadVariantsAsync(file, folderName, EnumSet.allOf(ImageVariant.class)));
+        }
+        return awaitUploads(uploads, pending);
+    }
+
+    // Waits for uploads started with uploadVariantsAsync and records every resulting URL in uploads.
+    // If any of them fails, the ones that succeeded are deleted and the failure is rethrown.
+    public List<ImageVariants> awaitUploads(List<String> uploads, List<CompletableFuture<ImageVariants>> pending) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            for (CompletableFuture<ImageVariants> upload : pending) {
+                if (!upload.isCompletedExceptionally() && upload.join() != null) {
+                    upload.join().urls().forEach(this::deleteImageAsync);
+                }
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        List<ImageVariants> results = pending.stream().map(CompletableFuture::join).toList();
+        results.stream().filter(Objects::nonNull).forEach(variants -> uploads.addAll(variants.urls()));
+        return results;
+    }
+
+    // Second half of an upload: uploads happen first with no connection or locks held, then the
+    // database work runs here in its own short transaction. If it fails or rolls back, the uploads
+    // it would have referenced are deleted again.
+    public <T> T attachInTransaction(List<String> uploads, Supplier<T> work) {
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } catch (RuntimeException | Error e) {
+            discard(uploads);
+            throw e;
+        }
+    }
+
+    // Deletes images once the current transaction has committed, e.g. the ones a new upload replaced,
+    // so a failed update never leaves the row pointing at a deleted image
+    public void deleteAfterCommit(String... imageUrls) {
+        List<String> urls = Stream.of(imageUrls)
+                .filter(url -> url != null && !url.isEmpty())
+                .distinct()
+                .toList();
+        if (urls.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    urls.forEach(ImageHostingService.this::deleteImageAsync);
+                }
+            });
+        } else {
+            urls.forEach(this::deleteImageAsync);
+        }
+    }
+
+    public void discard(List<String> uploads) {
+        for (String url : new ArrayList<>(uploads)) {
+            deleteImageAsync(url);
+        }
+    }
+}
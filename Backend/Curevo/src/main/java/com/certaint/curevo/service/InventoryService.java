@@ -1,30 +1,84 @@
 package com.certaint.curevo.service;
 
+import com.certaint.curevo.dto.StockAdjustmentDTO;
+import com.certaint.curevo.dto.StockAdjustmentResultDTO;
 import com.certaint.curevo.entity.Inventory;
+import com.certaint.curevo.entity.OrderItem;
 import com.certaint.curevo.entity.Product; // Import Product entity
 import com.certaint.curevo.entity.Store;    // Import Store entity
+import com.certaint.curevo.event.InventoryStockChangedEvent;
+import com.certaint.curevo.exception.InsufficientStockException;
 import com.certaint.curevo.repository.InventoryRepository;
+import com.certaint.curevo.service.index.ProductAvailabilityIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired; // Can remove if only using @RequiredArgsConstructor
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
+    private final StoreService storeService;
+    private final ProductAvailabilityIndex productAvailabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final HotStockService hotStockService;
+    private final CartHoldService cartHoldService;
+
+    // stock is the absolute level when given, otherwise the current level plus delta; a delta that
+    // would take the row below zero matches nothing, so concurrent sales can never be overwritten
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE inventories SET stock = COALESCE(?, COALESCE(stock, 0) + ?) " +
+                    "WHERE store_id = ? AND product_id = ? AND COALESCE(?, COALESCE(stock, 0) + ?) >= 0";
+
+    // Takes units only while enough are left over beyond other carts' holds (last parameter is quantity +
+    // units held by others); the row lock is held until the checkout commits
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE inventories SET stock = stock - ? WHERE store_id = ? AND product_id = ? AND stock >= ?";
+
+    private static final String RELEASE_STOCK_SQL =
+            "UPDATE inventories SET stock = COALESCE(stock, 0) + ? WHERE store_id = ? AND product_id = ?";
+
+    private static final Comparator<StockKey> LOCK_ORDER =
+            Comparator.comparingLong(StockKey::storeId).thenComparingLong(StockKey::productId);
+
+    public static final int MAX_ADJUSTMENTS_PER_REQUEST = 5000;
+
+    // Load every store location and in-stock (store, product) pair into the availability index once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshAvailabilityIndex() {
+        List<ProductAvailabilityIndex.InStockEntry> inStock = inventoryRepository.findInStockRows().stream()
+                .map(row -> new ProductAvailabilityIndex.InStockEntry(row.getStoreId(), row.getProductId()))
+                .collect(Collectors.toList());
+        productAvailabilityIndex.rebuild(storeService.getAllStores(), inStock);
+    }
 
     public List<Inventory> getAllInventories() {
         return inventoryRepository.findAll();
     }
 
     public Inventory saveInventory(Inventory inventory) {
-        return inventoryRepository.save(inventory);
+        Inventory savedInventory = inventoryRepository.save(inventory);
+        publishStockChanged(savedInventory, stockOf(savedInventory));
+        return savedInventory;
     }
 
     // READ BY ID
@@ -36,22 +90,226 @@ public class InventoryService {
     public Inventory updateInventory(Long id, Inventory updatedInventory) {
         return inventoryRepository.findById(id)
                 .map(existingInventory -> {
+                    // The row may be moved to another product or store, which empties the old pair
+                    publishStockChanged(existingInventory, 0);
                     existingInventory.setProduct(updatedInventory.getProduct());
                     existingInventory.setStore(updatedInventory.getStore());
                     existingInventory.setStock(updatedInventory.getStock());
                     // add any other fields you have!
-                    return inventoryRepository.save(existingInventory);
+                    Inventory savedInventory = inventoryRepository.save(existingInventory);
+                    publishStockChanged(savedInventory, stockOf(savedInventory));
+                    return savedInventory;
                 })
                 .orElseThrow(() -> new RuntimeException("Inventory not found with id " + id));
     }
 
     // DELETE
     public void deleteInventory(Long id) {
-        inventoryRepository.deleteById(id);
+        inventoryRepository.findById(id).ifPresent(inventory -> {
+            inventoryRepository.delete(inventory);
+            publishStockChanged(inventory, 0);
+        });
+    }
+
+    // Applies many stock changes in one transaction as a JDBC batch of conditional UPDATEs.
+    // Rows are updated in (storeId, productId) order so two overlapping requests always lock
+    // in the same order and cannot deadlock; adjustments to the same pair keep their request order.
+    @Transactional
+    public List<StockAdjustmentResultDTO> adjustStock(List<StockAdjustmentDTO> adjustments) {
+        if (adjustments.size() > MAX_ADJUSTMENTS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_ADJUSTMENTS_PER_REQUEST + " adjustments are allowed per request");
+        }
+        for (StockAdjustmentDTO adjustment : adjustments) {
+            if (adjustment.getStoreId() == null || adjustment.getProductId() == null) {
+                throw new IllegalArgumentException("storeId and productId are required for every adjustment");
+            }
+            if ((adjustment.getDelta() == null) == (adjustment.getStock() == null)) {
+                throw new IllegalArgumentException("Exactly one of delta or stock must be given for store "
+                        + adjustment.getStoreId() + ", product " + adjustment.getProductId());
+            }
+            if (adjustment.getStock() != null && adjustment.getStock() < 0) {
+                throw new IllegalArgumentException("Stock must not be negative for store "
+                        + adjustment.getStoreId() + ", product " + adjustment.getProductId());
+            }
+        }
+
+        if (adjustments.isEmpty()) {
+            return List.of();
+        }
+
+        List<StockAdjustmentDTO> ordered = new ArrayList<>(adjustments);
+        ordered.sort(Comparator.comparing(StockAdjustmentDTO::getStoreId).thenComparing(StockAdjustmentDTO::getProductId));
+
+        int[][] counts = jdbcTemplate.batchUpdate(ADJUST_STOCK_SQL, ordered, ordered.size(), (ps, adjustment) -> {
+            ps.setObject(1, adjustment.getStock(), Types.INTEGER);
+            ps.setObject(2, adjustment.getDelta(), Types.INTEGER);
+            ps.setLong(3, adjustment.getStoreId());
+            ps.setLong(4, adjustment.getProductId());
+            ps.setObject(5, adjustment.getStock(), Types.INTEGER);
+            ps.setObject(6, adjustment.getDelta(), Types.INTEGER);
+        });
+
+        Map<StockKey, Integer> levels = loadStockLevels(ordered.stream()
+                .map(adjustment -> new StockKey(adjustment.getStoreId(), adjustment.getProductId()))
+                .toList());
+
+        // Results in request order, so clients can match them up line by line
+        Map<StockAdjustmentDTO, Boolean> applied = new IdentityHashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            applied.put(ordered.get(i), counts[0][i] != 0);
+        }
+        List<StockAdjustmentResultDTO> results = new ArrayList<>(adjustments.size());
+        for (StockAdjustmentDTO adjustment : adjustments) {
+            Integer stock = levels.get(new StockKey(adjustment.getStoreId(), adjustment.getProductId()));
+            String status = stock == null ? "NOT_FOUND" : applied.get(adjustment) ? "UPDATED" : "REJECTED";
+            results.add(new StockAdjustmentResultDTO(adjustment.getStoreId(), adjustment.getProductId(), status, stock));
+        }
+
+        levels.forEach((key, stock) ->
+                eventPublisher.publishEvent(new InventoryStockChangedEvent(key.storeId(), key.productId(), stock)));
+        return results;
+    }
+
+    // Takes the ordered units of every item out of its store's stock, all or nothing. Units held by other
+    // customers' carts are not available; the checking-out customer's own holds (ownCartItemIds) are. Must run inside the
+    // checkout transaction: rows are locked in (storeId, productId) order, so concurrent checkouts on the
+    // same SKUs queue on those rows only and cannot deadlock, and any shortage rolls the whole order back.
+    @Transactional
+    public void reserveStock(List<OrderItem> items, Collection<Long> ownCartItemIds) {
+        Map<StockKey, Integer> requested = quantitiesByStock(items);
+        List<String> shortages = new ArrayList<>();
+
+        // Flash-sale SKUs are served from memory; their units reach inventories.stock later (write-behind)
+        Map<StockKey, Integer> sqlLines = new TreeMap<>(LOCK_ORDER);
+        requested.forEach((key, quantity) -> {
+            if (!hotStockService.isHot(key.storeId(), key.productId())) {
+                sqlLines.put(key, quantity);
+            } else if (hotStockService.tryReserve(key.storeId(), key.productId(), quantity)) {
+                markDeferred(items, key);
+            } else {
+                shortages.add(productName(items, key) + " (requested " + quantity
+                        + ", available " + hotStockService.available(key.storeId(), key.productId()) + ")");
+            }
+        });
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException("Insufficient stock for " + String.join(", ", shortages));
+        }
+        if (sqlLines.isEmpty()) {
+            return;
+        }
+
+        Map<StockKey, Integer> heldByOthers = new HashMap<>();
+        sqlLines.keySet().forEach(key -> heldByOthers.put(key,
+                cartHoldService.heldByOthers(key.storeId(), key.productId(), ownCartItemIds)));
+
+        List<Map.Entry<StockKey, Integer>> lines = new ArrayList<>(sqlLines.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(RESERVE_STOCK_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey().storeId());
+            ps.setLong(3, line.getKey().productId());
+            ps.setInt(4, line.getValue() + heldByOthers.get(line.getKey()));
+        });
+
+        Map<StockKey, Integer> levels = loadStockLevels(sqlLines.keySet());
+        for (int i = 0; i < lines.size(); i++) {
+            if (counts[0][i] == 0) {
+                StockKey key = lines.get(i).getKey();
+                shortages.add(productName(items, key) + " (requested " + lines.get(i).getValue()
+                        + ", available " + Math.max(0, levels.getOrDefault(key, 0) - heldByOthers.get(key)) + ")");
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException("Insufficient stock for " + String.join(", ", shortages));
+        }
+        levels.forEach((key, stock) ->
+                eventPublisher.publishEvent(new InventoryStockChangedEvent(key.storeId(), key.productId(), stock)));
+    }
+
+    private static void markDeferred(List<OrderItem> items, StockKey key) {
+        for (OrderItem item : items) {
+            if (item.getStore() != null && item.getProduct() != null
+                    && item.getStore().getStoreId() == key.storeId() && item.getProduct().getProductId() == key.productId()) {
+                item.setStockDeferred(true);
+            }
+        }
+    }
+
+    // Puts the units of a cancelled order back into the stores they were reserved from
+    @Transactional
+    public void releaseStock(List<OrderItem> items) {
+        Map<StockKey, Integer> released = quantitiesByStock(items);
+        if (released.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<StockKey, Integer>> lines = new ArrayList<>(released.entrySet());
+        jdbcTemplate.batchUpdate(RELEASE_STOCK_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey().storeId());
+            ps.setLong(3, line.getKey().productId());
+        });
+        loadStockLevels(released.keySet()).forEach((key, stock) ->
+                eventPublisher.publishEvent(new InventoryStockChangedEvent(key.storeId(), key.productId(), stock)));
+    }
+
+    // Total quantity per (store, product), in lock order
+    private Map<StockKey, Integer> quantitiesByStock(List<OrderItem> items) {
+        Map<StockKey, Integer> quantities = new TreeMap<>(LOCK_ORDER);
+        if (items == null) {
+            return quantities;
+        }
+        for (OrderItem item : items) {
+            if (item.getStore() == null || item.getProduct() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                continue;
+            }
+            quantities.merge(new StockKey(item.getStore().getStoreId(), item.getProduct().getProductId()),
+                    item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private static String productName(List<OrderItem> items, StockKey key) {
+        return items.stream()
+                .filter(item -> item.getProduct() != null && item.getProduct().getProductId() == key.productId())
+                .map(item -> item.getProduct().getName())
+                .findFirst()
+                .orElse("product " + key.productId());
+    }
+
+    private Map<StockKey, Integer> loadStockLevels(Collection<StockKey> keys) {
+        Map<StockKey, Integer> levels = new HashMap<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder pairs = new StringBuilder();
+        keys.stream()
+                .distinct()
+                .forEach(key -> {
+                    pairs.append(pairs.isEmpty() ? "(?, ?)" : ", (?, ?)");
+                    params.add(key.storeId());
+                    params.add(key.productId());
+                });
+        if (params.isEmpty()) {
+            return levels;
+        }
+        jdbcTemplate.query("SELECT store_id, product_id, COALESCE(stock, 0) AS stock FROM inventories " +
+                        "WHERE (store_id, product_id) IN (" + pairs + ")",
+                rs -> {
+                    levels.put(new StockKey(rs.getLong("store_id"), rs.getLong("product_id")), rs.getInt("stock"));
+                },
+                params.toArray());
+        return levels;
+    }
+
+    private record StockKey(long storeId, long productId) {
+    }
+
+    private void publishStockChanged(Inventory inventory, int stock) {
+        if (inventory.getStore() != null && inventory.getProduct() != null) {
+            eventPublisher.publishEvent(new InventoryStockChangedEvent(
+                    inventory.getStore().getStoreId(), inventory.getProduct().getProductId(), stock));
+        }
     }
 
-    public Page<Inventory> getInventoriesByStoreIds(List<Long> storeIds, Pageable pageable) {
-        return inventoryRepository.findByStore_StoreIdIn(storeIds, pageable);
+    private int stockOf(Inventory inventory) {
+        return inventory.getStock() != null ? inventory.getStock() : 0;
     }
 
     // --- NEW METHOD: Get Inventory by Product and Store ---
@@ -38,14 +38,17 @@ public class OrderItemService {
 
     public List<OrderItem> createOrderItems(Customer customer) {
         // 1️⃣ Fetch all cart items for the customer
-        List<CartItem> cartItems = cartItemService.getCartItemsByCustomer(customer);
+        return createOrderItems(cartItemService.getCartItemsByCustomer(customer));
+    }
 
+    public List<OrderItem> createOrderItems(List<CartItem> cartItems) {
         // 2️⃣ Convert each cart item to an OrderItem
         List<OrderItem> orderItems = new ArrayList<>();
 
         for (CartItem cartItem : cartItems) {
             OrderItem orderItem = new OrderItem();
             orderItem.setProduct(cartItem.getProduct());
+            orderItem.setStore(cartItem.getStore());
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setUnitPrice(cartItem.getProduct().getPrice()); // assuming product has price field
 
@@ -1,19 +1,32 @@
 package com.certaint.curevo.service;
 
 import com.certaint.curevo.controller.CartController;
+import com.certaint.curevo.dto.CursorPage;
+import com.certaint.curevo.entity.CartItem;
 import com.certaint.curevo.entity.Customer;
 import com.certaint.curevo.entity.Order;
 import com.certaint.curevo.entity.OrderItem;
 import com.certaint.curevo.enums.OrderStatus;
+import com.certaint.curevo.enums.PaymentStatus;
+import com.certaint.curevo.event.ProductsOrderedEvent;
+import com.certaint.curevo.exception.InvalidCursorException;
 import com.certaint.curevo.repository.OrderItemRepository;
 import com.certaint.curevo.repository.OrderRepository;
+import com.certaint.curevo.util.CursorCodec;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -25,11 +38,14 @@ public class OrderService {
     private final OrderItemRepository orderItemRepository;
     private final CartItemService cartItemService;
     private final ImageHostingService imageHostingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryService inventoryService;
     private final CartController cartController; // This might be a circular dependency, consider if OrderService really needs CartController.
 
 
 
 
+
     public Order save(Order order) {
         return repository.save(order);
     }
@@ -47,13 +63,25 @@ public class OrderService {
     }
 
 
-    @Transactional
+    // The prescription is uploaded before the checkout transaction starts, so the upload never holds a
+    // pooled connection or stock row locks; if the checkout then fails, the upload is deleted again
     public Order createOrder(Customer customer, Order order, MultipartFile prescription) {
+        List<String> uploads = new ArrayList<>();
+        String prescriptionUrl = imageHostingService.stageImage(prescription, "prescription", uploads);
+        return imageHostingService.attachInTransaction(uploads, () -> placeOrder(customer, order, prescriptionUrl));
+    }
+
+    // Runs inside the checkout transaction
+    private Order placeOrder(Customer customer, Order order, String prescriptionUrl) {
         order.setCustomer(customer);
-        if (prescription != null && !prescription.isEmpty()) {
-            String imgUrl = imageHostingService.uploadImage(prescription,"prescription");
-            order.setPrescriptionUrl(imgUrl);
-        }
+
+        // Create OrderItems from CartItems and take their units out of stock first, so a shortage
+        // fails the checkout before anything else is written
+        List<CartItem> cartItems = cartItemService.getCartItemsByCustomer(customer);
+        List<OrderItem> orderItems = orderItemService.createOrderItems(cartItems);
+        inventoryService.reserveStock(orderItems, cartItems.stream().map(CartItem::getId).toList());
+
+        order.setPrescriptionUrl(prescriptionUrl);
 
         // Set a default status, which can be overridden if a prescription is needed
         // Assuming your Order entity has a 'status' field and you have an OrderStatus enum
@@ -61,9 +89,6 @@ public class OrderService {
 
         order = repository.save(order);  // Save it to get the generated ID
 
-        // Create OrderItems from CartItems
-        List<OrderItem> orderItems = orderItemService.createOrderItems(customer);
-
         // Assign this Order to each OrderItem and check for prescription requirement
         boolean needsVerification = false;
         for (OrderItem item : orderItems) {
@@ -84,6 +109,13 @@ public class OrderService {
         // Save all OrderItems
         orderItemRepository.saveAll(orderItems);
 
+        // Units ordered drive the product autocomplete ranking, applied once the order commits
+        Map<Long, Integer> unitsByProduct = new HashMap<>();
+        for (OrderItem item : orderItems) {
+            unitsByProduct.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+        }
+        eventPublisher.publishEvent(new ProductsOrderedEvent(unitsByProduct));
+
         // (Optional) Clear the customer's cart
         cartItemService.clearCartForCustomer(customer);
 
@@ -91,6 +123,30 @@ public class OrderService {
         return order;
     }
 
+    // Marks the order cancelled, drops its delivery assignments, refunds its payment and returns its reserved
+    // units to stock (unless it was already delivered). The status is checked on a row-locked read, so of two
+    // concurrent cancels only the first does any of this; the second gets an empty result.
+    @Transactional
+    public Optional<Order> cancelOrder(Long orderId) {
+        Order order = repository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            return Optional.empty();
+        }
+        if (order.getStatus() != OrderStatus.DELIVERED) {
+            inventoryService.releaseStock(order.getOrderItems());
+        }
+        if (order.getDeliveryAssignments() != null) {
+            order.getDeliveryAssignments().clear();
+        }
+        // Assuming a cancelled order means the payment should be marked as refunded
+        if (order.getPayment() != null) {
+            order.getPayment().setStatus(PaymentStatus.REFUNDED);
+        }
+        order.setStatus(OrderStatus.CANCELLED);
+        return Optional.of(repository.save(order));
+    }
+
     public Boolean verifyPrescription(Long orderId) {
         System.out.println("Verifying prescription for order ID: " + orderId);
         Optional<Order> orderOpt = repository.findById(orderId);
@@ -101,11 +157,7 @@ public class OrderService {
 
         Order order = orderOpt.get();
 
-        if( order.getPrescriptionUrl() != null ) {
-            imageHostingService.deleteImage(order.getPrescriptionUrl());
-            System.out.println("Deleted it: " + orderId);
-        }
-        System.out.println("Just outside the if: " + orderId);
+        String prescriptionUrl = order.getPrescriptionUrl();
         order.setPrescriptionUrl(null);
         System.out.println("Setting prescription URL to null for order ID: " + orderId);
         order.setStatus(OrderStatus.VERIFIED);
@@ -114,6 +166,9 @@ public class OrderService {
         System.out.println("Eveyrhting working fine");
         repository.save(order);
 
+        // Only after the order no longer points at it; a skipped or failed delete is left to MediaReconciler
+        imageHostingService.deleteImageAsync(prescriptionUrl);
+
         return true;
     }
 
@@ -121,4 +176,40 @@ public class OrderService {
     public List<Order> findAllByCustomer(Customer customer) {
         return repository.findByCustomer(customer);
     }
+
+    // Newest orders first, paged by the last seen (placedAt, id); customer == null lists every order
+    public CursorPage<Order> findByCursor(Customer customer, String cursor, int size, boolean includeTotal) {
+        Instant beforePlacedAt = null;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null) {
+            CursorCodec.Cursor decoded = CursorCodec.decode(cursor);
+            try {
+                beforePlacedAt = Instant.parse(decoded.sortKey());
+            } catch (DateTimeException e) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            beforeId = decoded.id();
+        }
+
+        PageRequest window = PageRequest.of(0, size + 1);
+        List<Order> orders;
+        Long total = null;
+        // The first page has no cursor and is read without a placedAt bound
+        if (customer != null) {
+            orders = beforePlacedAt == null
+                    ? repository.findNewestByCustomer(customer, window)
+                    : repository.findByCustomerBefore(customer, beforePlacedAt, beforeId, window);
+            if (includeTotal) {
+                total = repository.countByCustomer(customer);
+            }
+        } else {
+            orders = beforePlacedAt == null
+                    ? repository.findNewest(window)
+                    : repository.findAllBefore(beforePlacedAt, beforeId, window);
+            if (includeTotal) {
+                total = repository.count();
+            }
+        }
+        return CursorPage.of(orders, size, order -> CursorCodec.encode(order.getPlacedAt().toString(), order.getId()), total);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.certaint.curevo.service;
+
+import com.certaint.curevo.dto.ProductWithInventoryDTO;
+import com.certaint.curevo.dto.StoreStockDTO;
+import com.certaint.curevo.enums.ProductCategory;
+import com.certaint.curevo.exception.ExportCapacityException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.Semaphore;
+
+// Streams the whole catalogue with its inventory to a response without holding it in memory.
+// Rows come through a forward-only MySQL streaming result set, ordered by product, and every product
+// is written out as soon as its last inventory row has been read. A running export keeps a pooled
+// connection for as long as the client takes to download, so only a few may run at once.
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    // Integer.MIN_VALUE makes Connector/J stream rows one at a time instead of buffering the result set
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final int FLUSH_EVERY_PRODUCTS = 100;
+
+    private static final String EXPORT_SQL =
+            "SELECT p.product_id, p.name, p.description, p.price, p.image, p.hover_image, p.quantity, " +
+                    "p.prescription_required, p.category, i.store_id, s.name AS store_name, i.stock " +
+                    "FROM products p " +
+                    "LEFT JOIN inventories i ON i.product_id = p.product_id " +
+                    "LEFT JOIN stores s ON s.store_id = i.store_id " +
+                    "ORDER BY p.product_id, i.inventory_id";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    @Value("${curevo.export.max-concurrent:2}")
+    private int maxConcurrentExports;
+
+    private Semaphore exportSlots;
+
+    @PostConstruct
+    void initExportSlots() {
+        exportSlots = new Semaphore(maxConcurrentExports);
+    }
+
+    // Takes one of the export slots, or fails right away when all of them are in use. Called before the
+    // response starts so the client still gets a proper error; writeAllProductsWithInventory gives it back.
+    public void acquireExportSlot() {
+        if (!exportSlots.tryAcquire()) {
+            throw new ExportCapacityException("Too many catalogue exports are running, please try again shortly");
+        }
+    }
+
+    // Writes one ProductWithInventoryDTO per line (NDJSON), or a single JSON array when asArray is set.
+    // Releases the slot taken by acquireExportSlot, whether or not the export completes.
+    public void writeAllProductsWithInventory(OutputStream out, boolean asArray) throws IOException {
+        try {
+            JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+            streamingTemplate.setFetchSize(STREAMING_FETCH_SIZE);
+
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            // NDJSON lines are separated by the explicit newline only, not by the default " " between root values
+            generator.setRootValueSeparator(null);
+            if (asArray) {
+                generator.writeStartArray();
+            }
+
+            ProductWriter writer = new ProductWriter(generator, asArray);
+            try {
+                streamingTemplate.query(EXPORT_SQL, writer::processRow);
+                writer.finish();
+            } catch (UncheckedIOException e) {
+                // Most likely the client went away mid-download
+                throw e.getCause();
+            }
+
+            if (asArray) {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        } finally {
+            exportSlots.release();
+        }
+    }
+
+    // Groups consecutive rows of the same product; only the product being read is ever in memory
+    private final class ProductWriter {
+
+        private final JsonGenerator generator;
+        private final boolean asArray;
+        // Flushing is left to FLUSH_EVERY_PRODUCTS rather than done after every value
+        private final ObjectWriter productWriter = objectMapper.writerFor(ProductWithInventoryDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        private ProductWithInventoryDTO current;
+        private int written;
+
+        ProductWriter(JsonGenerator generator, boolean asArray) {
+            this.generator = generator;
+            this.asArray = asArray;
+        }
+
+        void processRow(ResultSet rs) throws SQLException {
+            long productId = rs.getLong("product_id");
+            if (current == null || current.getProductId() != productId) {
+                finish();
+                String category = rs.getString("category");
+                current = new ProductWithInventoryDTO(
+                        productId,
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getBigDecimal("price"),
+                        rs.getString("image"),
+                        rs.getString("hover_image"),
+                        rs.getString("quantity"),
+                        rs.getBoolean("prescription_required"),
+                        category != null ? ProductCategory.valueOf(category) : null,
+                        new ArrayList<>()
+                );
+            }
+
+            long storeId = rs.getLong("store_id");
+            if (!rs.wasNull()) {
+                String storeName = rs.getString("store_name");
+                int stock = rs.getInt("stock");
+                current.getInventoryDetails().add(new StoreStockDTO(
+                        storeId, storeName != null ? storeName : "Unknown Store", rs.wasNull() ? null : stock));
+            }
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+            try {
+                productWriter.writeValue(generator, current);
+                if (!asArray) {
+                    generator.writeRaw('\n');
+                }
+                if (++written % FLUSH_EVERY_PRODUCTS == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+}
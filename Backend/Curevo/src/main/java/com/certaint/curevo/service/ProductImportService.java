@@ -0,0 +1,329 @@
+package com.certaint.curevo.service;
+
+import com.certaint.curevo.dto.ImportReportDTO;
+import com.certaint.curevo.dto.ProductWithInventoryDTO;
+import com.certaint.curevo.dto.StoreStockDTO;
+import com.certaint.curevo.entity.Inventory;
+import com.certaint.curevo.entity.Product;
+import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.enums.ProductCategory;
+import com.certaint.curevo.event.InventoryStockChangedEvent;
+import com.certaint.curevo.event.ProductChangedEvent;
+import com.certaint.curevo.repository.ProductRepository;
+import com.certaint.curevo.service.index.ProductDocument;
+import com.certaint.curevo.util.CsvReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Bulk catalogue import. The file is parsed row by row, stores are resolved from a map loaded once
+// up front, and products are written BATCH_SIZE at a time in one transaction each, which Hibernate
+// turns into JDBC batches (see hibernate.jdbc.batch_size and the pooled ID sequences on Product/Inventory).
+// Every row creates a new product; productId in NDJSON input is ignored.
+//
+// CSV needs a header row. Columns are matched by name, case-insensitively:
+//   name, price, category (required), description, quantity, prescriptionRequired, image, hoverImage,
+//   stock ("storeId:stock" pairs separated by '|', e.g. "1:20|4:5")
+// NDJSON has one ProductWithInventoryDTO per line, the same shape /get-all-with-inventory/stream writes.
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ProductRepository productRepository;
+    private final StoreService storeService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    // format is "csv" or "ndjson"
+    public ImportReportDTO importProducts(InputStream in, String format) throws IOException {
+        Map<Long, Store> stores = storeService.getAllStores().stream()
+                .collect(Collectors.toMap(Store::getStoreId, Function.identity()));
+        // Same fallback as ProductService.saveOrUpdateProduct for products without any stock lines
+        Store defaultStore = storeService.getFirstStoreById().orElse(null);
+
+        ImportReportDTO report = new ImportReportDTO();
+        Batch batch = new Batch(report);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        // Excel's "CSV UTF-8" (and some editors) start the file with a byte order mark, which the UTF-8
+        // decoder passes through as \uFEFF and would otherwise become part of the first column name or line
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+
+        if ("ndjson".equalsIgnoreCase(format)) {
+            String text;
+            int line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                report.setRowsRead(report.getRowsRead() + 1);
+                try {
+                    ProductWithInventoryDTO dto = objectMapper.readValue(text, ProductWithInventoryDTO.class);
+                    batch.add(line, toProduct(dto, stores, defaultStore));
+                } catch (IOException | IllegalArgumentException e) {
+                    recordError(report, line, e.getMessage());
+                }
+            }
+        } else if ("csv".equalsIgnoreCase(format)) {
+            CsvReader csv = new CsvReader(reader);
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                return report;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : List.of("name", "price", "category")) {
+                if (!columns.containsKey(required)) {
+                    throw new IllegalArgumentException("CSV header is missing required column: " + required);
+                }
+            }
+
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                report.setRowsRead(report.getRowsRead() + 1);
+                try {
+                    batch.add(csv.getRecordLine(), toProduct(toDto(record, columns), stores, defaultStore));
+                } catch (IllegalArgumentException e) {
+                    recordError(report, csv.getRecordLine(), e.getMessage());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+
+        batch.flush();
+        return report;
+    }
+
+    private ProductWithInventoryDTO toDto(List<String> record, Map<String, Integer> columns) {
+        ProductWithInventoryDTO dto = new ProductWithInventoryDTO();
+        dto.setName(column(record, columns, "name"));
+        dto.setDescription(column(record, columns, "description"));
+        dto.setQuantity(column(record, columns, "quantity"));
+        dto.setImage(column(record, columns, "image"));
+        dto.setHoverImage(column(record, columns, "hoverimage"));
+
+        String price = column(record, columns, "price");
+        if (price != null) {
+            try {
+                dto.setPrice(new BigDecimal(price));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid price: " + price);
+            }
+        }
+        String category = column(record, columns, "category");
+        if (category != null) {
+            dto.setCategory(parseCategory(category));
+        }
+        String prescription = column(record, columns, "prescriptionrequired");
+        if (prescription != null) {
+            dto.setPrescriptionRequired(parseBoolean(prescription));
+        }
+
+        List<StoreStockDTO> stock = new ArrayList<>();
+        String stockColumn = column(record, columns, "stock");
+        if (stockColumn != null) {
+            for (String pair : stockColumn.split("\\|")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                String[] parts = pair.split(":", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid stock entry '" + pair + "', expected storeId:stock");
+                }
+                try {
+                    stock.add(new StoreStockDTO(Long.parseLong(parts[0].trim()), null, Integer.parseInt(parts[1].trim())));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid stock entry '" + pair + "', expected storeId:stock");
+                }
+            }
+        }
+        dto.setInventoryDetails(stock);
+        return dto;
+    }
+
+    private Product toProduct(ProductWithInventoryDTO dto, Map<Long, Store> stores, Store defaultStore) {
+        if (dto.getName() == null || dto.getName().isBlank()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (dto.getPrice() == null || dto.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("Price is required and must not be negative");
+        }
+        if (dto.getCategory() == null) {
+            throw new IllegalArgumentException("Category is required");
+        }
+
+        Product product = new Product();
+        product.setName(dto.getName().trim());
+        product.setDescription(dto.getDescription());
+        product.setPrice(dto.getPrice());
+        product.setQuantity(dto.getQuantity());
+        product.setImage(dto.getImage());
+        product.setHoverImage(dto.getHoverImage());
+        product.setPrescriptionRequired(Boolean.TRUE.equals(dto.getPrescriptionRequired()));
+        product.setCategory(dto.getCategory());
+
+        Set<Long> seenStores = new HashSet<>();
+        if (dto.getInventoryDetails() != null) {
+            for (StoreStockDTO line : dto.getInventoryDetails()) {
+                Store store = stores.get(line.getStoreId());
+                if (store == null) {
+                    throw new IllegalArgumentException("Store not found with id: " + line.getStoreId());
+                }
+                if (!seenStores.add(store.getStoreId())) {
+                    throw new IllegalArgumentException("Store " + store.getStoreId() + " is listed more than once");
+                }
+                if (line.getStock() == null || line.getStock() < 0) {
+                    throw new IllegalArgumentException("Stock for store " + store.getStoreId() + " must be zero or more");
+                }
+                product.getInventories().add(newInventory(product, store, line.getStock()));
+            }
+        }
+        if (product.getInventories().isEmpty()) {
+            if (defaultStore == null) {
+                throw new IllegalArgumentException("No stock given and no default store exists");
+            }
+            product.getInventories().add(newInventory(product, defaultStore, 0));
+        }
+        return product;
+    }
+
+    private static Inventory newInventory(Product product, Store store, int stock) {
+        Inventory inventory = new Inventory();
+        inventory.setProduct(product);
+        inventory.setStore(store);
+        inventory.setStock(stock);
+        return inventory;
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static ProductCategory parseCategory(String value) {
+        try {
+            return ProductCategory.valueOf(value.trim().toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown category: " + value);
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "y", "1" -> true;
+            case "false", "no", "n", "0" -> false;
+            default -> throw new IllegalArgumentException("Invalid prescriptionRequired value: " + value);
+        };
+    }
+
+    private static void recordError(ImportReportDTO report, int line, String message) {
+        report.setRowsFailed(report.getRowsFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportReportDTO.RowError(line, message));
+        }
+    }
+
+    private record PendingRow(int line, Product product) {
+    }
+
+    // Rows waiting to be written. A failed batch is retried one row per transaction,
+    // so a single bad row (e.g. a constraint violation) only costs that row.
+    private final class Batch {
+
+        private final ImportReportDTO report;
+        private final List<PendingRow> rows = new ArrayList<>(BATCH_SIZE);
+
+        Batch(ImportReportDTO report) {
+            this.report = report;
+        }
+
+        void add(int line, Product product) {
+            rows.add(new PendingRow(line, product));
+            if (rows.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(rows));
+                for (PendingRow row : rows) {
+                    countImported(row);
+                }
+            } catch (RuntimeException batchFailure) {
+                for (PendingRow row : rows) {
+                    // The failed attempt may have assigned IDs that were then rolled back
+                    row.product().setProductId(null);
+                    row.product().getInventories().forEach(inventory -> inventory.setInventoryId(null));
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> persist(List.of(row)));
+                        countImported(row);
+                    } catch (RuntimeException e) {
+                        recordError(report, row.line(), rootMessage(e));
+                    }
+                }
+            }
+            rows.clear();
+        }
+
+        private void countImported(PendingRow row) {
+            report.setProductsImported(report.getProductsImported() + 1);
+            report.setInventoriesImported(report.getInventoriesImported() + row.product().getInventories().size());
+        }
+    }
+
+    // Must run inside a transaction; the events are delivered to the in-memory indexes only if it commits
+    private void persist(List<PendingRow> rows) {
+        List<Product> saved = productRepository.saveAll(rows.stream().map(PendingRow::product).toList());
+        for (Product product : saved) {
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductDocument.of(product)));
+            for (Inventory inventory : product.getInventories()) {
+                eventPublisher.publishEvent(new InventoryStockChangedEvent(
+                        inventory.getStore().getStoreId(), product.getProductId(), inventory.getStock()));
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
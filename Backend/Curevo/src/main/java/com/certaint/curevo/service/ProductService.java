@@ -1,28 +1,59 @@
 package com.certaint.curevo.service;
 
+import com.certaint.curevo.dto.CursorPage;
+import com.certaint.curevo.dto.PopularityCount;
 import com.certaint.curevo.dto.ProductWithDistanceTagDTO;
 import com.certaint.curevo.dto.ProductWithInventoryDTO;
 import com.certaint.curevo.dto.StoreStockDTO;
+import com.certaint.curevo.dto.SuggestionDTO;
 import com.certaint.curevo.entity.Product;
 import com.certaint.curevo.entity.Inventory;
 import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.enums.ImageVariant;
 import com.certaint.curevo.enums.ProductCategory;
+import com.certaint.curevo.exception.InvalidCursorException;
+import com.certaint.curevo.event.ProductChangedEvent;
+import com.certaint.curevo.event.InventoryStockChangedEvent;
+import com.certaint.curevo.event.ProductDeletedEvent;
 import com.certaint.curevo.repository.InventoryRepository;
+import com.certaint.curevo.repository.OrderItemRepository;
 import com.certaint.curevo.repository.ProductRepository;
-import com.certaint.curevo.dto.StoreDistanceInfo;
+import com.certaint.curevo.service.index.ProductAvailabilityIndex;
+import com.certaint.curevo.service.index.ProductCategoryIndex;
+import com.certaint.curevo.service.index.ProductDocument;
+import com.certaint.curevo.service.index.ProductNameMatcher;
+import com.certaint.curevo.service.index.ProductSearchIndex;
+import com.certaint.curevo.service.index.ProductSuggestIndex;
+import com.certaint.curevo.service.media.ImageVariants;
+import com.certaint.curevo.util.CursorCodec;
+import com.certaint.curevo.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,47 +65,88 @@ public class ProductService {
     private final StoreService storeService;
     private final InventoryService inventoryService; // Keep this for direct inventory operations if needed
     private final InventoryRepository inventoryRepository; // For direct inventory queries
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductNameMatcher productNameMatcher;
+    private final ProductAvailabilityIndex productAvailabilityIndex;
+    private final ProductCategoryIndex productCategoryIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final OrderItemRepository orderItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CartHoldService cartHoldService;
+
+    // Load the whole catalogue into the search index, spelling dictionary, category bitmaps and
+    // autocomplete trie once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshSearchIndex() {
+        List<ProductDocument> documents = productRepository.findAllDocuments();
+        productSearchIndex.rebuild(documents);
+        productNameMatcher.rebuild(documents);
+        productCategoryIndex.rebuild(documents);
+        Map<Long, Long> unitsOrdered = orderItemRepository.countUnitsOrderedByProduct().stream()
+                .collect(Collectors.toMap(PopularityCount::getId, PopularityCount::getScore));
+        productSuggestIndex.rebuild(documents, unitsOrdered);
+    }
 
-    @Transactional
+    // Top completions for what has been typed so far, best sellers first
+    public List<SuggestionDTO> suggestProducts(String prefix, int limit) {
+        return productSuggestIndex.suggest(prefix, limit).stream()
+                .map(completion -> new SuggestionDTO(completion.id(), completion.text()))
+                .collect(Collectors.toList());
+    }
+
+    // Images are uploaded before the transaction starts, so a slow upload never holds a pooled connection
+    // or row locks; the database work then runs in one short transaction, and if that fails the new
+    // uploads are deleted again (see ImageHostingService.attachInTransaction)
     public ProductWithInventoryDTO saveOrUpdateProduct(
             ProductWithInventoryDTO requestDTO,
             MultipartFile image,
             MultipartFile hoverImage) throws IOException {
 
+        // Fail fast before uploading anything for a product that does not exist
+        if (requestDTO.getProductId() != null && !productRepository.existsById(requestDTO.getProductId())) {
+            throw new RuntimeException("Product not found with ID: " + requestDTO.getProductId());
+        }
+
+        // Both images are resized and uploaded in parallel; the hover image is only ever shown full-size or on a card
+        List<String> uploads = new ArrayList<>();
+        List<ImageVariants> staged = imageHostingService.awaitUploads(uploads, List.of(
+                imageHostingService.uploadVariantsAsync(image, "products", EnumSet.allOf(ImageVariant.class)),
+                imageHostingService.uploadVariantsAsync(hoverImage, "products", EnumSet.of(ImageVariant.FULL, ImageVariant.CARD))));
+        ImageVariants imageVariants = staged.get(0);
+        ImageVariants hoverImageVariants = staged.get(1);
+        return imageHostingService.attachInTransaction(uploads,
+                () -> applyProductChanges(requestDTO, imageVariants, hoverImageVariants));
+    }
+
+    // Runs inside the save-or-update transaction; the variants are null when no new file was sent
+    private ProductWithInventoryDTO applyProductChanges(ProductWithInventoryDTO requestDTO, ImageVariants imageVariants,
+                                                        ImageVariants hoverImageVariants) {
         Product product;
         if (requestDTO.getProductId() != null) {
             // This is an update
             product = productRepository.findById(requestDTO.getProductId())
                     .orElseThrow(() -> new RuntimeException("Product not found with ID: " + requestDTO.getProductId()));
 
-            // Handle image updates only if new files are provided (as per user's requirement)
-            if (image != null && !image.isEmpty()) {
-                if (product.getImage() != null && !product.getImage().isEmpty()) {
-                    imageHostingService.deleteImage(product.getImage());
-                }
-                String imageUrl = imageHostingService.uploadImage(image, "products");
-                product.setImage(imageUrl);
+            // Replace images only if new files were provided; the old ones are deleted after commit
+            if (imageVariants != null) {
+                imageHostingService.deleteAfterCommit(product.getImage(), product.getCardImage(), product.getThumbnailImage());
             }
-            if (hoverImage != null && !hoverImage.isEmpty()) {
-                if (product.getHoverImage() != null && !product.getHoverImage().isEmpty()) {
-                    imageHostingService.deleteImage(product.getHoverImage());
-                }
-                String hoverImageUrl = imageHostingService.uploadImage(hoverImage, "products");
-                product.setHoverImage(hoverImageUrl);
+            if (hoverImageVariants != null) {
+                imageHostingService.deleteAfterCommit(product.getHoverImage(), product.getHoverCardImage());
             }
 
         } else {
             // This is a new product creation
             product = new Product();
-            // Upload images for new product
-            if (image != null && !image.isEmpty()) {
-                String imageUrl = imageHostingService.uploadImage(image, "products");
-                product.setImage(imageUrl);
-            }
-            if (hoverImage != null && !hoverImage.isEmpty()) {
-                String hoverImageUrl = imageHostingService.uploadImage(hoverImage, "products");
-                product.setHoverImage(hoverImageUrl);
-            }
+        }
+        if (imageVariants != null) {
+            product.setImage(imageVariants.full());
+            product.setCardImage(imageVariants.card());
+            product.setThumbnailImage(imageVariants.thumbnail());
+        }
+        if (hoverImageVariants != null) {
+            product.setHoverImage(hoverImageVariants.full());
+            product.setHoverCardImage(hoverImageVariants.card());
         }
 
         // Update basic product details (common for both create and update)
@@ -85,65 +157,37 @@ public class ProductService {
         product.setPrescriptionRequired(requestDTO.getPrescriptionRequired());
         product.setCategory(requestDTO.getCategory());
 
-        // Save the product first to get its ID, crucial for new products
-        Product savedProduct = productRepository.save(product);
-
+        Set<Long> previousStoreIds = product.getInventories().stream()
+                .map(inventory -> inventory.getStore().getStoreId())
+                .collect(Collectors.toSet());
 
         if (requestDTO.getInventoryDetails() != null && !requestDTO.getInventoryDetails().isEmpty()) {
-            // If it's an update, we first clear existing inventories to handle deletions
-            // and then add/update based on the DTO. This ensures only specified inventories exist.
-            if (requestDTO.getProductId() != null) {
-                // Clear existing inventories and let orphanRemoval=true handle deletions from DB
-                // Ensure the Product's inventories collection is loaded if FetchType.LAZY
-                // If FetchType.EAGER, it's already loaded.
-                savedProduct.getInventories().clear();
-                productRepository.save(savedProduct); // Persist the change to trigger orphanRemoval
-            }
-
-            for (StoreStockDTO storeStockDTO : requestDTO.getInventoryDetails()) {
-                Store store = storeService.getStoreById(storeStockDTO.getStoreId());
-
-                // Check if an inventory entry already exists for this product and store in the *loaded* collection
-                Optional<Inventory> existingInventoryOptional = savedProduct.getInventories().stream()
-                        .filter(inv -> inv.getStore().getStoreId().equals(store.getStoreId()))
-                        .findFirst();
-
-                Inventory inventory;
-                if (existingInventoryOptional.isPresent()) {
-                    inventory = existingInventoryOptional.get();
-                    inventory.setStock(storeStockDTO.getStock()); // Update existing stock
-                } else {
-                    // Create new inventory entry and add to the product's collection
-                    inventory = new Inventory();
-                    inventory.setProduct(savedProduct); // Set the product side of the relationship
-                    inventory.setStore(store);
-                    inventory.setStock(storeStockDTO.getStock());
-                    savedProduct.getInventories().add(inventory); // Add to the collection
-                }
-                // No need to call inventoryService.saveInventory(inventory) explicitly here if
-                // cascade = CascadeType.ALL or CascadeType.PERSIST is used on the @OneToMany.
-                // The save on savedProduct will handle it.
-            }
-            // Save the product again to persist changes to the inventory collection
-            savedProduct = productRepository.save(savedProduct);
-
+            // The DTO lists every store the product should be stocked in, so diff it against the
+            // current rows by storeId: changed rows are updated in place (keeping their IDs), new
+            // stores get a row, and stores missing from the DTO are dropped via orphanRemoval.
+            syncInventories(product, requestDTO.getInventoryDetails());
         } else if (requestDTO.getProductId() == null) {
             // For new products, if no inventoryDetails are provided, create a default initial stock
             Optional<Store> defaultStoreOptional = storeService.getFirstStoreById();
             if (defaultStoreOptional.isPresent()) {
                 Inventory initialInventory = new Inventory();
-                initialInventory.setProduct(savedProduct);
+                initialInventory.setProduct(product);
                 initialInventory.setStore(defaultStoreOptional.get());
                 initialInventory.setStock(0); // Default to 0 stock if not provided
-                // Add to the product's collection
-                savedProduct.getInventories().add(initialInventory);
-                // Save the product again to persist this new inventory
-                savedProduct = productRepository.save(savedProduct);
+                product.getInventories().add(initialInventory);
             } else {
                 throw new RuntimeException("Cannot create product without inventory: No inventory details provided and no default store found in the system. Please add at least one store.");
             }
         }
 
+        // A single save: new products are persisted together with their inventories, and for
+        // existing ones every inventory change above goes out in the one flush at commit
+        Product savedProduct = productRepository.save(product);
+
+
+        // Picked up by the search and availability indexes once the transaction commits
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductDocument.of(savedProduct)));
+        publishStockChanges(savedProduct, previousStoreIds);
 
         // Return the full DTO, including all current inventory details
         // Now using the product.getInventories() directly
@@ -151,6 +195,64 @@ public class ProductService {
     }
 
 
+    // Applies the requested stock lines to the product's inventory collection, keyed by storeId
+    private void syncInventories(Product product, List<StoreStockDTO> details) {
+        Map<Long, Integer> requestedStock = new LinkedHashMap<>();
+        for (StoreStockDTO storeStockDTO : details) {
+            requestedStock.put(storeStockDTO.getStoreId(), storeStockDTO.getStock());
+        }
+
+        Map<Long, Inventory> existing = new HashMap<>();
+        for (Inventory inventory : product.getInventories()) {
+            existing.put(inventory.getStore().getStoreId(), inventory);
+        }
+
+        // Removed stores
+        product.getInventories().removeIf(inventory -> !requestedStock.containsKey(inventory.getStore().getStoreId()));
+
+        // Stores that need a new row are loaded in one query rather than one lookup each
+        List<Long> newStoreIds = requestedStock.keySet().stream()
+                .filter(storeId -> !existing.containsKey(storeId))
+                .toList();
+        Map<Long, Store> newStores = newStoreIds.isEmpty() ? Map.of()
+                : storeService.getStoresByIds(newStoreIds).stream()
+                        .collect(Collectors.toMap(Store::getStoreId, Function.identity()));
+
+        requestedStock.forEach((storeId, stock) -> {
+            Inventory inventory = existing.get(storeId);
+            if (inventory != null) {
+                // Only an actual change makes the row dirty, so untouched stores cost no UPDATE
+                if (!Objects.equals(inventory.getStock(), stock)) {
+                    inventory.setStock(stock);
+                }
+                return;
+            }
+            Store store = newStores.get(storeId);
+            if (store == null) {
+                throw new RuntimeException("Store not found with id: " + storeId);
+            }
+            inventory = new Inventory();
+            inventory.setProduct(product);
+            inventory.setStore(store);
+            inventory.setStock(stock);
+            product.getInventories().add(inventory);
+        });
+    }
+
+    // One stock event per store the product is listed in now, and a zero for every store it was dropped from
+    private void publishStockChanges(Product product, Set<Long> previousStoreIds) {
+        Set<Long> removedStoreIds = new HashSet<>(previousStoreIds);
+        for (Inventory inventory : product.getInventories()) {
+            Long storeId = inventory.getStore().getStoreId();
+            removedStoreIds.remove(storeId);
+            eventPublisher.publishEvent(new InventoryStockChangedEvent(storeId, product.getProductId(),
+                    inventory.getStock() != null ? inventory.getStock() : 0));
+        }
+        for (Long storeId : removedStoreIds) {
+            eventPublisher.publishEvent(new InventoryStockChangedEvent(storeId, product.getProductId(), 0));
+        }
+    }
+
     // --- Helper Method to get DTO from Product Entity ---
     // This method becomes much simpler by using product.getInventories()
     private ProductWithInventoryDTO convertProductToDTO(Product product) {
@@ -209,106 +311,325 @@ public class ProductService {
                     product.setPrice(updatedProduct.getPrice());
                     product.setImage(updatedProduct.getImage());
                     product.setHoverImage(updatedProduct.getHoverImage());
+                    product.setCardImage(updatedProduct.getCardImage());
+                    product.setThumbnailImage(updatedProduct.getThumbnailImage());
+                    product.setHoverCardImage(updatedProduct.getHoverCardImage());
                     product.setQuantity(updatedProduct.getQuantity());
                     product.setCategory(updatedProduct.getCategory());
                     product.setPrescriptionRequired(updatedProduct.getPrescriptionRequired());
-                    return productRepository.save(product);
+                    Product savedProduct = productRepository.save(product);
+                    eventPublisher.publishEvent(new ProductChangedEvent(ProductDocument.of(savedProduct)));
+                    return savedProduct;
                 }).orElseThrow(() -> new RuntimeException("Product not found with id " + productId));
     }
 
     @Transactional // Ensure this method is transactional for lazy loading if needed
     public void deleteProduct(Long productId) {
         productRepository.deleteById(productId);
+        eventPublisher.publishEvent(new ProductDeletedEvent(productId));
     }
 
+    // Products in stock within the radius, one card per product; the location-only case of getProducts
     @Transactional
     public Page<ProductWithDistanceTagDTO> getProductsByLocation(double userLat, double userLon, double radiusKm, Pageable pageable) {
-        // Here's the fix: Use storeId() and distance() instead of getStoreId() and getDistance()
-        List<StoreService.StoreDistanceInfo> storeDistances = storeService.getStoresWithDistancesWithinRadius(userLat, userLon, radiusKm);
-
-        if (storeDistances.isEmpty()) {
-            return Page.empty(pageable);
-        }
-
-        Map<Long, Double> storeIdToDistanceMap = storeDistances.stream()
-                .collect(Collectors.toMap(StoreService.StoreDistanceInfo::storeId, StoreService.StoreDistanceInfo::distance));
-
-        List<Long> storeIds = storeDistances.stream()
-                .map(StoreService.StoreDistanceInfo::storeId) // Fix here
-                .collect(Collectors.toList());
-
-        // Assuming inventoryRepository has a method to get inventories by store IDs and paginate
-        Page<Inventory> inventories = inventoryRepository.findByStore_StoreIdIn(storeIds, pageable);
-
-        List<ProductWithDistanceTagDTO> productWithDistanceTags = inventories.stream()
-                .map(inventory -> {
-                    Double distance = storeIdToDistanceMap.get(inventory.getStore().getStoreId());
-                    String distanceTag = formatDistanceToTag(distance);
-                    Integer availableStock = inventory.getStock();
-                    return new ProductWithDistanceTagDTO(inventory.getProduct(), distanceTag, availableStock, inventory.getStore());
-                })
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(productWithDistanceTags, pageable, inventories.getTotalElements());
+        return getProducts(null, null, userLat, userLon, radiusKm, pageable);
     }
 
+    // One card per product: pages over product IDs, then loads that page of products with their
+    // inventories in a single query and picks the nearest in-stock store for each of them.
     @Transactional
     public Page<ProductWithDistanceTagDTO> getProducts(
             String keyword,
+            ProductCategory category,
             Double userLat,
             Double userLon,
             Double radiusKm,
             Pageable pageable) {
 
-        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
-        boolean calculateLocationInfo = (userLat != null && userLon != null);
+        List<Long> pageProductIds;
+        long totalProducts;
+        Map<Long, Double> storeDistances = new HashMap<>();
+        Set<Long> allowedStoreIds = null;
+
+        ProductCandidates candidates = productCandidates(keyword, userLat, userLon, radiusKm);
+        if (candidates.ranked() != null) {
+            // Ranked product IDs come from the in-memory index, so relevance order holds across pages
+            List<Long> matchingProductIds = filterByCategory(candidates.ranked(), category);
+            int from = (int) Math.min(pageable.getOffset(), matchingProductIds.size());
+            int to = Math.min(from + pageable.getPageSize(), matchingProductIds.size());
+            pageProductIds = matchingProductIds.subList(from, to);
+            totalProducts = matchingProductIds.size();
+        } else if (candidates.ids() != null) {
+            allowedStoreIds = loadStoreDistancesWithinRadius(userLat, userLon, radiusKm, storeDistances);
+            if (allowedStoreIds.isEmpty()) {
+                return Page.empty(pageable);
+            }
+            // Products in stock nearby come straight from the availability bitmaps, no inventory scan
+            RoaringBitmap available = candidates.ids();
+            if (category != null) {
+                available.and(productCategoryIndex.productsIn(category));
+            }
+            long offset = pageable.getOffset();
+            pageProductIds = offset < available.getLongCardinality()
+                    ? productIdsAfter(available, available.select((int) offset) - 1L, pageable.getPageSize())
+                    : List.of();
+            totalProducts = available.getLongCardinality();
+        } else {
+            Page<Long> productIdPage = category != null
+                    ? inventoryRepository.findListedProductIdsByCategory(category, pageable)
+                    : inventoryRepository.findListedProductIds(pageable);
+            pageProductIds = productIdPage.getContent();
+            totalProducts = productIdPage.getTotalElements();
+        }
 
-        Page<Inventory> inventoriesPage;
+        List<ProductWithDistanceTagDTO> dtoList = toProductCards(pageProductIds, userLat, userLon, storeDistances, allowedStoreIds);
+        return new PageImpl<>(dtoList, pageable, totalProducts);
+    }
 
-        if (hasKeyword) {
-            inventoriesPage = inventoryRepository.findByProduct_NameContainingIgnoreCase(keyword, pageable);
+    // Same filters as getProducts, but pages by the last seen product instead of an offset,
+    // so page 50 costs the same as page 1. The total is only counted when asked for.
+    @Transactional
+    public CursorPage<ProductWithDistanceTagDTO> getProductsByCursor(
+            String keyword,
+            ProductCategory category,
+            Double userLat,
+            Double userLon,
+            Double radiusKm,
+            String cursor,
+            int size,
+            boolean includeTotal) {
+
+        CursorCodec.Cursor after = cursor != null ? CursorCodec.decode(cursor) : null;
+        Map<Long, Double> storeDistances = new HashMap<>();
+        Set<Long> allowedStoreIds = null;
+
+        List<Long> productIds;
+        Long total = null;
+        Function<Long, String> cursorOf;
+
+        ProductCandidates candidates = productCandidates(keyword, userLat, userLon, radiusKm);
+        if (candidates.ranked() != null) {
+            // The cursor carries the rank position of the last product seen; if that product moved
+            // because the index changed in between, continue right after its new position
+            List<Long> matchingProductIds = filterByCategory(candidates.ranked(), category);
+            int from = 0;
+            if (after != null) {
+                int position = matchingProductIds.indexOf(after.id());
+                from = (position >= 0 ? position : parseRank(after.sortKey(), cursor)) + 1;
+            }
+            from = Math.min(from, matchingProductIds.size());
+            productIds = matchingProductIds.subList(from, Math.min(from + size + 1, matchingProductIds.size()));
+            int offset = from;
+            cursorOf = productId -> CursorCodec.encode(String.valueOf(offset + productIds.indexOf(productId)), productId);
+            if (includeTotal) {
+                total = (long) matchingProductIds.size();
+            }
         } else {
-            List<Long> storeIdsWithinRadius = null;
-            if (calculateLocationInfo) {
-                // Here's the fix: Use storeId() and distance() within getStoresWithDistancesWithinRadius
-                List<StoreService.StoreDistanceInfo> storeDistances = storeService.getStoresWithDistancesWithinRadius(userLat, userLon, radiusKm != null ? radiusKm : Double.MAX_VALUE);
-                if (storeDistances.isEmpty()) {
-                    return Page.empty(pageable);
+            long afterProductId = after != null ? after.id() : 0L;
+            // One extra row tells us whether there is a next page without counting
+            Pageable window = PageRequest.of(0, size + 1);
+            if (candidates.ids() != null) {
+                allowedStoreIds = loadStoreDistancesWithinRadius(userLat, userLon, radiusKm, storeDistances);
+                if (allowedStoreIds.isEmpty()) {
+                    return CursorPage.empty(includeTotal);
+                }
+                RoaringBitmap available = candidates.ids();
+                if (category != null) {
+                    available.and(productCategoryIndex.productsIn(category));
+                }
+                productIds = productIdsAfter(available, afterProductId, size + 1);
+                if (includeTotal) {
+                    total = available.getLongCardinality();
+                }
+            } else if (category != null) {
+                productIds = inventoryRepository.findListedProductIdsByCategoryAfter(category, afterProductId, window);
+                if (includeTotal) {
+                    total = inventoryRepository.countListedProductsByCategory(category);
+                }
+            } else {
+                productIds = inventoryRepository.findListedProductIdsAfter(afterProductId, window);
+                if (includeTotal) {
+                    total = inventoryRepository.countListedProducts();
                 }
-                storeIdsWithinRadius = storeDistances.stream()
-                        .map(StoreService.StoreDistanceInfo::storeId) // Fix here
-                        .collect(Collectors.toList());
             }
+            cursorOf = productId -> CursorCodec.encode("", productId);
+        }
 
-            if (storeIdsWithinRadius != null && !storeIdsWithinRadius.isEmpty()) {
-                inventoriesPage = inventoryRepository.findByStore_StoreIdIn(storeIdsWithinRadius, pageable);
-            } else if (!calculateLocationInfo) {
-                inventoriesPage = inventoryRepository.findAll(pageable);
-            } else {
-                return Page.empty(pageable);
+        CursorPage<Long> idPage = CursorPage.of(productIds, size, cursorOf, total);
+        List<ProductWithDistanceTagDTO> cards = toProductCards(idPage.getContent(), userLat, userLon, storeDistances, allowedStoreIds);
+        return new CursorPage<>(cards, idPage.getNextCursor(), idPage.isHasNext(), idPage.getTotalElements());
+    }
+
+    // Products per category for the same keyword and location filter as getProducts: both start from
+    // productCandidates, so each count is exactly the total the listing reports for that category
+    public Map<String, Long> getCategoryCounts(String keyword, Double userLat, Double userLon, Double radiusKm) {
+        ProductCandidates candidates = productCandidates(keyword, userLat, userLon, radiusKm);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (candidates.ranked() == null && candidates.ids() == null) {
+            // Every listed product: counted by the same distinct-inventory definition the listing pages over
+            for (ProductCategory category : ProductCategory.values()) {
+                counts.put(category.name(), 0L);
+            }
+            for (InventoryRepository.CategoryCount count : inventoryRepository.countListedProductsPerCategory()) {
+                if (count.getCategory() != null) {
+                    counts.put(count.getCategory().name(), count.getProductCount());
+                }
             }
+            return counts;
         }
 
-        List<ProductWithDistanceTagDTO> dtoList = inventoriesPage.stream()
-                .map(inventory -> {
-                    String distanceTag = "N/A";
-                    if (calculateLocationInfo && inventory.getStore() != null) {
-                        double distance = calculateDistance(userLat, userLon,
-                                inventory.getStore().getLatitude(),
-                                inventory.getStore().getLongitude());
-                        distanceTag = formatDistanceToTag(distance);
-                    }
-                    Integer availableStock = inventory.getStock();
-                    return new ProductWithDistanceTagDTO(
-                            inventory.getProduct(),
-                            distanceTag,
-                            availableStock,
-                            inventory.getStore()
-                    );
-                })
+        RoaringBitmap products = candidates.ids();
+        if (products == null) {
+            products = new RoaringBitmap();
+            for (Long productId : candidates.ranked()) {
+                products.add(Math.toIntExact(productId));
+            }
+        }
+        productCategoryIndex.countsWithin(products).forEach((category, count) -> counts.put(category.name(), count));
+        return counts;
+    }
+
+    // What a product listing shows before the category facet is applied, shared by getProducts,
+    // getProductsByCursor and getCategoryCounts. ranked is set for a keyword search (every match, best
+    // first; location and stock are not applied); ids is set when a location limits the listing to
+    // products in stock within the radius; neither is set when the listing is every listed product,
+    // which is paged and counted in the database.
+    private record ProductCandidates(List<Long> ranked, RoaringBitmap ids) {
+    }
+
+    private ProductCandidates productCandidates(String keyword, Double userLat, Double userLon, Double radiusKm) {
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            return new ProductCandidates(searchProductIds(keyword), null);
+        }
+        if (userLat != null && userLon != null) {
+            return new ProductCandidates(null, productAvailabilityIndex.inStockWithin(userLat, userLon, radiusOrMax(radiusKm)));
+        }
+        return new ProductCandidates(null, null);
+    }
+
+    private List<Long> filterByCategory(List<Long> productIds, ProductCategory category) {
+        if (category == null) {
+            return productIds;
+        }
+        RoaringBitmap inCategory = productCategoryIndex.productsIn(category);
+        return productIds.stream()
+                .filter(productId -> inCategory.contains(Math.toIntExact(productId)))
                 .collect(Collectors.toList());
+    }
+
+    // Up to limit product IDs from the bitmap that are greater than afterProductId, in ascending order
+    private List<Long> productIdsAfter(RoaringBitmap productIds, long afterProductId, int limit) {
+        List<Long> result = new ArrayList<>(limit);
+        if (afterProductId >= Integer.MAX_VALUE) {
+            return result;
+        }
+        PeekableIntIterator iterator = productIds.getIntIterator();
+        iterator.advanceIfNeeded((int) afterProductId + 1);
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add((long) iterator.next());
+        }
+        return result;
+    }
 
-        return new PageImpl<>(dtoList, pageable, inventoriesPage.getTotalElements());
+    private double radiusOrMax(Double radiusKm) {
+        return radiusKm != null ? radiusKm : Double.MAX_VALUE;
+    }
+
+    private int parseRank(String rank, String cursor) {
+        try {
+            return Math.max(0, Integer.parseInt(rank));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+
+    // Every ranked product ID for a keyword, retrying once with the closest spelling of the product names
+    // ("paracetmol"). Nothing is cut off, so pages and totals cover the whole match set.
+    private List<Long> searchProductIds(String keyword) {
+        List<Long> matchingProductIds = productSearchIndex.search(keyword);
+        if (matchingProductIds.isEmpty()) {
+            Optional<String> correctedKeyword = productNameMatcher.correct(keyword);
+            if (correctedKeyword.isPresent()) {
+                matchingProductIds = productSearchIndex.search(correctedKeyword.get());
+            }
+        }
+        return matchingProductIds;
+    }
+
+    // Fills storeDistances with every store inside the radius and returns their IDs
+    private Set<Long> loadStoreDistancesWithinRadius(double userLat, double userLon, Double radiusKm, Map<Long, Double> storeDistances) {
+        for (StoreService.StoreDistanceInfo info : storeService.getStoresWithDistancesWithinRadius(userLat, userLon, radiusOrMax(radiusKm))) {
+            storeDistances.put(info.storeId(), info.distance());
+        }
+        return new HashSet<>(storeDistances.keySet());
+    }
+
+    // Loads the given products with their inventories and stores in one query and builds their cards in the same order
+    private List<ProductWithDistanceTagDTO> toProductCards(List<Long> productIds, Double userLat, Double userLon,
+                                                           Map<Long, Double> storeDistances, Set<Long> allowedStoreIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> productsById = productRepository.findAllWithInventoriesByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(Product::getProductId, product -> product));
+
+        List<ProductWithDistanceTagDTO> cards = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                cards.add(toProductCard(product, userLat, userLon, storeDistances, allowedStoreIds));
+            }
+        }
+        return cards;
+    }
+
+    // Picks the store to show for a product: the nearest one with stock, else the nearest one listing it.
+    // Without a user location the store with the most stock wins. Distances are cached per store in
+    // storeDistances, so a store shared by every product on the page is only measured once.
+    private ProductWithDistanceTagDTO toProductCard(Product product, Double userLat, Double userLon,
+                                                    Map<Long, Double> storeDistances, Set<Long> allowedStoreIds) {
+        boolean calculateLocationInfo = (userLat != null && userLon != null);
+
+        Inventory best = null;
+        double bestDistance = Double.MAX_VALUE;
+        boolean bestInStock = false;
+        for (Inventory inventory : product.getInventories()) {
+            Store store = inventory.getStore();
+            if (store == null || (allowedStoreIds != null && !allowedStoreIds.contains(store.getStoreId()))) {
+                continue;
+            }
+            boolean inStock = availableStockOf(inventory) > 0;
+            double distance = calculateLocationInfo
+                    ? storeDistances.computeIfAbsent(store.getStoreId(),
+                            storeId -> calculateDistance(userLat, userLon, store.getLatitude(), store.getLongitude()))
+                    : 0;
+
+            boolean better;
+            if (best == null || inStock != bestInStock) {
+                better = best == null || inStock;
+            } else if (calculateLocationInfo) {
+                better = distance < bestDistance;
+            } else {
+                better = availableStockOf(inventory) > availableStockOf(best);
+            }
+            if (better) {
+                best = inventory;
+                bestDistance = distance;
+                bestInStock = inStock;
+            }
+        }
+
+        if (best == null) {
+            return new ProductWithDistanceTagDTO(product, "N/A", 0, null);
+        }
+        String distanceTag = calculateLocationInfo ? formatDistanceToTag(bestDistance) : "N/A";
+        return new ProductWithDistanceTagDTO(product, distanceTag, availableStockOf(best), best.getStore());
+    }
+
+    // Stock minus the units live cart holds keep aside
+    private int availableStockOf(Inventory inventory) {
+        int stock = inventory.getStock() != null ? inventory.getStock() : 0;
+        return Math.max(0, stock - cartHoldService.held(inventory.getStore().getStoreId(), inventory.getProduct().getProductId()));
     }
 
     @Transactional // Ensure this method is transactional for lazy loading of inventories/stores
@@ -333,7 +654,7 @@ public class ProductService {
 
         Integer availableStock = 0;
         if (inventoryOpt.isPresent()) {
-            availableStock = inventoryOpt.get().getStock();
+            availableStock = availableStockOf(inventoryOpt.get());
         }
 
         String distanceTag = "N/A";
@@ -390,6 +711,16 @@ public class ProductService {
         return new ProductWithDistanceTagDTO(product, distanceTag, availableStock, relevantStore);
     }
 
+    // "Did you mean" respellings of a search, closest first; empty when every word is spelled like a product name
+    public List<String> getSpellingSuggestions(String keyword, int limit) {
+        if (keyword == null || keyword.isBlank()) {
+            return List.of();
+        }
+        return productNameMatcher.suggest(keyword, limit).stream()
+                .map(ProductNameMatcher.Suggestion::text)
+                .collect(Collectors.toList());
+    }
+
     public List<String> getAllProductCategories() {
         return Arrays.stream(ProductCategory.values())
                 .map(Enum::name)
@@ -412,14 +743,6 @@ public class ProductService {
     }
 
     private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371;
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c;
-        return distance;
+        return GeoUtils.haversineKm(lat1, lon1, lat2, lon2);
     }
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package com.certaint.curevo.service;
 
-import com.certaint.curevo.dto.StoreDistanceInfo;
 import com.certaint.curevo.repository.StoreRepository;
+import com.certaint.curevo.service.index.ProductAvailabilityIndex;
+import com.certaint.curevo.service.index.StoreGeoIndex;
+import com.certaint.curevo.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import com.certaint.curevo.entity.Store;
 
@@ -15,9 +20,25 @@ import java.util.stream.Collectors;
 public class StoreService {
 
     private final StoreRepository storeRepository;
+    private final StoreGeoIndex storeGeoIndex;
+    private final ProductAvailabilityIndex productAvailabilityIndex;
+
+    // "memory" answers radius lookups from StoreGeoIndex on this node,
+    // "database" uses the SPATIAL INDEX on stores.location so nodes need no local copy
+    @Value("${curevo.geo.store-lookup:memory}")
+    private String storeLookupMode;
+
+    // Load every store into the in-memory geo index once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshGeoIndex() {
+        storeGeoIndex.rebuild(storeRepository.findAll());
+    }
 
     public Store saveStore(Store store) {
-        return storeRepository.save(store);
+        Store savedStore = storeRepository.save(store);
+        storeGeoIndex.upsert(savedStore);
+        productAvailabilityIndex.upsertStore(savedStore);
+        return savedStore;
     }
 
     public List<Store> getAllStores() {
@@ -26,34 +47,21 @@ public class StoreService {
 
     public record StoreDistanceInfo(Long storeId, Double distance, Double latitude, Double longitude) {}
 
-    // Method to get stores within a radius, returning the custom DTO
+    // Stores within a radius, closest first
     public List<StoreDistanceInfo> getStoresWithDistancesWithinRadius(double userLat, double userLon, double radiusKm) {
-        // Fetch all stores (or optimize this to fetch only potentially relevant stores if your DB supports geo-queries)
-        List<Store> allStores = storeRepository.findAll(); // Example: Fetch all stores
-
-        return allStores.stream()
-                .map(store -> {
-                    double distance = calculateDistance(userLat, userLon, store.getLatitude(), store.getLongitude());
-                    if (distance <= radiusKm) {
-                        return new StoreDistanceInfo(store.getStoreId(), distance, store.getLatitude(), store.getLongitude());
-                    }
-                    return null; // Filter out stores outside the radius later
-                })
-                .filter(info -> info != null) // Remove nulls (stores outside radius)
-                .collect(Collectors.toList());
+        if ("database".equalsIgnoreCase(storeLookupMode)) {
+            double boundedRadiusKm = Math.min(radiusKm, GeoUtils.MAX_DISTANCE_KM);
+            return storeRepository.findStoresWithinRadius(userLat, userLon, boundedRadiusKm,
+                            GeoUtils.boundingBoxWkt(userLat, userLon, boundedRadiusKm))
+                    .stream()
+                    .map(info -> new StoreDistanceInfo(info.getStoreId(), info.getDistance(), info.getLatitude(), info.getLongitude()))
+                    .collect(Collectors.toList());
+        }
+        return storeGeoIndex.findWithinRadius(userLat, userLon, radiusKm);
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of Earth in kilometers
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c; // distance in km
+    public List<StoreDistanceInfo> getNearestStores(double userLat, double userLon, int limit) {
+        return storeGeoIndex.findNearest(userLat, userLon, limit);
     }
 
     public Store getStoreById(Long storeId) {
@@ -66,11 +74,10 @@ public class StoreService {
             throw new RuntimeException("Store not found with id: " + storeId);
         }
         storeRepository.deleteById(storeId);
+        storeGeoIndex.remove(storeId);
+        productAvailabilityIndex.removeStore(storeId);
     }
 
-//    public List<StoreDistanceInfo> getStoresWithDistancesWithinRadius(double lat, double lon, double radiusKm) {
-//        return storeRepository.findStoresWithinRadius(lat, lon, radiusKm);
-//    }
     public Store updateStore(Long storeId, Store updatedStore) {
         Store existingStore = storeRepository.findById(storeId)
                 .orElseThrow(() -> new RuntimeException("Store not found with id: " + storeId));
@@ -83,7 +90,10 @@ public class StoreService {
         existingStore.setPhoneNumber(updatedStore.getPhoneNumber());
 
 
-        return storeRepository.save(existingStore);
+        Store savedStore = storeRepository.save(existingStore);
+        storeGeoIndex.upsert(savedStore);
+        productAvailabilityIndex.upsertStore(savedStore);
+        return savedStore;
     }
 
     public List<Store> getStoresByIds(List<Long> storeIds) {
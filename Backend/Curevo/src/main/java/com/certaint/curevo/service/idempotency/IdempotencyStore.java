@@ -0,0 +1,19 @@
+package com.certaint.curevo.service.idempotency;
+
+import java.util.Optional;
+
+public interface IdempotencyStore {
+
+    enum BeginResult { STARTED, IN_PROGRESS, COMPLETED, FINGERPRINT_MISMATCH }
+
+    // Claims the key for a new request. Anything other than STARTED means the request must not run.
+    BeginResult begin(String key, String fingerprint);
+
+    // Present once the request that claimed the key has completed
+    Optional<StoredResponse> find(String key);
+
+    void complete(String key, StoredResponse response);
+
+    // Frees the key after a failure, so the client's retry runs the request again
+    void abandon(String key);
+}
@@ -0,0 +1,58 @@
+package com.certaint.curevo.service.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Single-node store: a bounded Caffeine cache, entries expire ttl after the key was first used
+@Component
+@ConditionalOnProperty(name = "curevo.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(@Value("${curevo.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${curevo.idempotency.max-entries:10000}") long maxEntries) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    @Override
+    public BeginResult begin(String key, String fingerprint) {
+        Entry fresh = new Entry(fingerprint, null);
+        Entry existing = entries.asMap().putIfAbsent(key, fresh);
+        if (existing == null) {
+            return BeginResult.STARTED;
+        }
+        if (!existing.fingerprint().equals(fingerprint)) {
+            return BeginResult.FINGERPRINT_MISMATCH;
+        }
+        return existing.response() == null ? BeginResult.IN_PROGRESS : BeginResult.COMPLETED;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        Entry entry = entries.getIfPresent(key);
+        return entry != null ? Optional.ofNullable(entry.response()) : Optional.empty();
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        entries.asMap().computeIfPresent(key, (k, entry) -> new Entry(entry.fingerprint(), response));
+    }
+
+    @Override
+    public void abandon(String key) {
+        entries.invalidate(key);
+    }
+
+    private record Entry(String fingerprint, StoredResponse response) {
+    }
+}
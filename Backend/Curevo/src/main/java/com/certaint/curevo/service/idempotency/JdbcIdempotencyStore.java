@@ -0,0 +1,77 @@
+package com.certaint.curevo.service.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// Store shared by every node, in the idempotency_keys table (see IdempotencyRecord). The primary key
+// makes claiming a key a single INSERT IGNORE, so two nodes can never both run the same request.
+@Component
+@ConditionalOnProperty(name = "curevo.idempotency.store", havingValue = "database")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, @Value("${curevo.idempotency.ttl:24h}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public BeginResult begin(String key, String fingerprint) {
+        Timestamp expiredBefore = Timestamp.from(Instant.now().minus(ttl));
+        // A leftover row older than the TTL counts as absent
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND created_at < ?", key, expiredBefore);
+        int inserted = jdbcTemplate.update("INSERT IGNORE INTO idempotency_keys (idempotency_key, fingerprint, created_at) " +
+                "VALUES (?, ?, ?)", key, fingerprint, Timestamp.from(Instant.now()));
+        if (inserted == 1) {
+            return BeginResult.STARTED;
+        }
+
+        List<Object[]> rows = jdbcTemplate.query("SELECT fingerprint, status FROM idempotency_keys WHERE idempotency_key = ?",
+                (rs, rowNum) -> new Object[]{rs.getString("fingerprint"), rs.getObject("status")}, key);
+        if (rows.isEmpty()) {
+            // Abandoned in between; let the client retry
+            return BeginResult.IN_PROGRESS;
+        }
+        if (!fingerprint.equals(rows.get(0)[0])) {
+            return BeginResult.FINGERPRINT_MISMATCH;
+        }
+        return rows.get(0)[1] == null ? BeginResult.IN_PROGRESS : BeginResult.COMPLETED;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return jdbcTemplate.query("SELECT status, content_type, body FROM idempotency_keys " +
+                                "WHERE idempotency_key = ? AND status IS NOT NULL",
+                        (rs, rowNum) -> new StoredResponse(rs.getInt("status"), rs.getString("content_type"), rs.getBytes("body")),
+                        key)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, content_type = ?, body = ? WHERE idempotency_key = ?",
+                response.status(), response.contentType(), response.body(), key);
+    }
+
+    @Override
+    public void abandon(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ?", key);
+    }
+
+    @Scheduled(fixedDelayString = "PT1H")
+    public void purgeExpired() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.from(Instant.now().minus(ttl)));
+    }
+}
@@ -0,0 +1,5 @@
+package com.certaint.curevo.service.idempotency;
+
+// What a replay of an idempotent request gets back
+public record StoredResponse(int status, String contentType, byte[] body) {
+}
@@ -0,0 +1,406 @@
+package com.certaint.curevo.service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compressed prefix trie (radix tree) for autocomplete where every node remembers the best score in its
+// subtree. Chains of single-child nodes are collapsed into one edge label, so a key costs a node per
+// branching point rather than per character. A top-k lookup walks down to the prefix node and then
+// expands nodes best-first, so it only ever touches the branches that can still contribute to the answer.
+// Children are kept in small sorted arrays keyed by the first character of their label, and nodes
+// without children or entries share the same empty arrays.
+// Each entry is indexed under its full text and under every later word ("vitamin c" also under "c").
+public class CompletionTrie {
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    public record Completion(long id, String text, long score) {
+    }
+
+    // One entry of a bulk rebuild
+    public record Item(long id, String text, long score) {
+    }
+
+    private static final class Entry {
+        final long id;
+        final String text;
+        final List<String> keys;
+        long score;
+
+        Entry(long id, String text, List<String> keys, long score) {
+            this.id = id;
+            this.text = text;
+            this.keys = keys;
+            this.score = score;
+        }
+    }
+
+    private static final class Node {
+        // Characters on the edge from the parent to this node; empty only for the root
+        String label;
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        Entry[] entries = NO_ENTRIES;
+        long maxScore = Long.MIN_VALUE;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void putChild(Node child) {
+            char c = child.label.charAt(0);
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                children[index] = child;
+                return;
+            }
+            int insertAt = -index - 1;
+            char[] grownKeys = new char[keys.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, grownKeys, 0, insertAt);
+            System.arraycopy(children, 0, grownChildren, 0, insertAt);
+            grownKeys[insertAt] = c;
+            grownChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, grownKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, grownChildren, insertAt + 1, children.length - insertAt);
+            keys = grownKeys;
+            children = grownChildren;
+        }
+
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) {
+                return;
+            }
+            if (keys.length == 1) {
+                keys = NO_KEYS;
+                children = NO_CHILDREN;
+                return;
+            }
+            char[] shrunkKeys = new char[keys.length - 1];
+            Node[] shrunkChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, shrunkKeys, 0, index);
+            System.arraycopy(keys, index + 1, shrunkKeys, index, keys.length - index - 1);
+            System.arraycopy(children, 0, shrunkChildren, 0, index);
+            System.arraycopy(children, index + 1, shrunkChildren, index, children.length - index - 1);
+            keys = shrunkKeys;
+            children = shrunkChildren;
+        }
+
+        void addEntry(Entry entry) {
+            Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[grown.length - 1] = entry;
+            entries = grown;
+        }
+
+        void removeEntry(Entry entry) {
+            Entry[] remaining = Arrays.stream(entries).filter(e -> e != entry).toArray(Entry[]::new);
+            entries = remaining.length == 0 ? NO_ENTRIES : remaining;
+        }
+
+        void recomputeMaxScore() {
+            long max = Long.MIN_VALUE;
+            for (Entry entry : entries) {
+                max = Math.max(max, entry.score);
+            }
+            for (Node child : children) {
+                max = Math.max(max, child.maxScore);
+            }
+            maxScore = max;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Entry> entries = new HashMap<>();
+    private Node root = new Node("");
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries = new HashMap<>();
+            root = new Node("");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replaces the whole content. The new trie is built without holding the lock and swapped in at once,
+    // so readers see either the old or the new index, never an empty or half-filled one.
+    public void rebuild(Collection<Item> items) {
+        CompletionTrie fresh = new CompletionTrie();
+        for (Item item : items) {
+            fresh.put(item.id(), item.text(), item.score());
+        }
+        lock.writeLock().lock();
+        try {
+            entries = fresh.entries;
+            root = fresh.root;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds or renames an entry, keeping its current score when it already exists
+    public void put(long id, String text, Long score) {
+        List<String> keys = keysOf(text);
+        lock.writeLock().lock();
+        try {
+            Entry existing = entries.get(id);
+            long newScore = score != null ? score : existing != null ? existing.score : 0L;
+            if (existing != null) {
+                unlink(existing);
+            }
+            if (keys.isEmpty()) {
+                entries.remove(id);
+                return;
+            }
+            Entry entry = new Entry(id, text, keys, newScore);
+            entries.put(id, entry);
+            for (String key : keys) {
+                link(entry, key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                unlink(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addScore(long id, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return;
+            }
+            entry.score += delta;
+            for (String key : entry.keys) {
+                List<Node> path = pathTo(key);
+                if (path != null) {
+                    recompute(path);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The k best-scored entries with a key starting with prefix, best first
+    public List<Completion> topK(String prefix, int k) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        if (normalized.length() > MAX_KEY_LENGTH) {
+            normalized = normalized.substring(0, MAX_KEY_LENGTH);
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = prefixNode(normalized);
+            if (node == null) {
+                return List.of();
+            }
+
+            // Frontier of nodes and entries ordered by the best score reachable through them
+            PriorityQueue<Object[]> frontier = new PriorityQueue<>((a, b) -> Long.compare((long) b[0], (long) a[0]));
+            frontier.add(new Object[]{node.maxScore, node});
+            List<Completion> result = new ArrayList<>(k);
+            Set<Long> seen = new HashSet<>();
+            while (!frontier.isEmpty() && result.size() < k) {
+                Object item = frontier.poll()[1];
+                if (item instanceof Entry entry) {
+                    if (seen.add(entry.id)) {
+                        result.add(new Completion(entry.id, entry.text, entry.score));
+                    }
+                } else {
+                    Node current = (Node) item;
+                    for (Entry entry : current.entries) {
+                        frontier.add(new Object[]{entry.score, entry});
+                    }
+                    for (Node child : current.children) {
+                        frontier.add(new Object[]{child.maxScore, child});
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The highest node whose keys all start with prefix; the prefix may end in the middle of its label
+    private Node prefixNode(String prefix) {
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            Node child = node.child(prefix.charAt(depth));
+            if (child == null) {
+                return null;
+            }
+            String label = child.label;
+            int remaining = prefix.length() - depth;
+            if (remaining <= label.length()) {
+                return label.regionMatches(0, prefix, depth, remaining) ? child : null;
+            }
+            if (!prefix.startsWith(label, depth)) {
+                return null;
+            }
+            depth += label.length();
+            node = child;
+        }
+        return node;
+    }
+
+    // Callers must hold the write lock
+    private void link(Entry entry, String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                child = new Node(key.substring(depth));
+                node.putChild(child);
+                depth = key.length();
+            } else {
+                int common = commonPrefixLength(child.label, key, depth);
+                if (common < child.label.length()) {
+                    // The key leaves (or ends inside) this edge: split it at the branching point
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.putChild(child);
+                    middle.maxScore = child.maxScore;
+                    node.putChild(middle);
+                    child = middle;
+                }
+                depth += common;
+            }
+            node = child;
+            path.add(node);
+        }
+        node.addEntry(entry);
+        recompute(path);
+    }
+
+    // Callers must hold the write lock
+    private void unlink(Entry entry) {
+        for (String key : entry.keys) {
+            List<Node> path = pathTo(key);
+            if (path == null) {
+                continue;
+            }
+            path.get(path.size() - 1).removeEntry(entry);
+            // Bottom-up: drop nodes that no longer lead anywhere and merge pass-through nodes into their child
+            for (int depth = path.size() - 1; depth > 0; depth--) {
+                Node current = path.get(depth);
+                Node parent = path.get(depth - 1);
+                if (current.entries.length == 0 && current.children.length == 0) {
+                    parent.removeChild(current.label.charAt(0));
+                } else if (current.entries.length == 0 && current.children.length == 1) {
+                    Node only = current.children[0];
+                    only.label = current.label + only.label;
+                    parent.putChild(only);
+                    path.set(depth, only);
+                }
+            }
+            recompute(path);
+        }
+    }
+
+    // Callers must hold the write lock
+    private void recompute(List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            path.get(depth).recomputeMaxScore();
+        }
+    }
+
+    // Nodes from the root down to the node holding exactly this key, or null when there is none
+    private List<Node> pathTo(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int depth = 0;
+        while (depth < key.length()) {
+            node = node.child(key.charAt(depth));
+            if (node == null || !key.startsWith(node.label, depth)) {
+                return null;
+            }
+            depth += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int length = 0;
+        while (length < max && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static List<String> keysOf(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (start >= 0) {
+            String key = normalized.substring(start);
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+            int space = normalized.indexOf(' ', start);
+            start = space >= 0 ? space + 1 : -1;
+        }
+        return new ArrayList<>(new HashSet<>(keys));
+    }
+
+    // Lower case, punctuation folded to single spaces
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+}
@@ -0,0 +1,57 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.event.AppointmentBookedEvent;
+import com.certaint.curevo.event.DoctorChangedEvent;
+import com.certaint.curevo.event.DoctorDeletedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+
+// Autocomplete over doctor names, ranked by number of appointments booked. Changes arrive as events
+// applied after commit, so a rolled back save or booking never shows up in the suggestions.
+@Component
+public class DoctorSuggestIndex {
+
+    private final CompletionTrie trie = new CompletionTrie();
+
+    // names maps doctorId -> name
+    public void rebuild(Map<Long, String> names, Map<Long, Long> appointmentCounts) {
+        trie.rebuild(names.entrySet().stream()
+                .map(doctor -> new CompletionTrie.Item(doctor.getKey(), doctor.getValue(),
+                        appointmentCounts.getOrDefault(doctor.getKey(), 0L)))
+                .toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        upsert(event.doctorId(), event.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorDeleted(DoctorDeletedEvent event) {
+        remove(event.doctorId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentBooked(AppointmentBookedEvent event) {
+        recordBooked(event.doctorId());
+    }
+
+    public void upsert(Long doctorId, String name) {
+        trie.put(doctorId, name, null);
+    }
+
+    public void remove(Long doctorId) {
+        trie.remove(doctorId);
+    }
+
+    public void recordBooked(Long doctorId) {
+        trie.addScore(doctorId, 1);
+    }
+
+    public List<CompletionTrie.Completion> suggest(String prefix, int limit) {
+        return trie.topK(prefix, limit);
+    }
+}
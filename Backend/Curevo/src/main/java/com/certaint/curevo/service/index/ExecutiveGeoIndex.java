@@ -0,0 +1,139 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.util.GeoUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+
+// In-memory index of the last known position of every delivery executive. Unlike StoreGeoIndex, which is
+// rebuilt on every write, positions change every few seconds, so executives are bucketed into a uniform
+// grid of lat/lon cells and a move only touches the two cells involved. Searches walk rings of cells
+// outwards from the query point and stop as soon as no cell further out can beat the best hit.
+@Component
+public class ExecutiveGeoIndex {
+
+    // About 2.2 km of latitude per cell: a handful of executives per cell in a busy city
+    private static final double CELL_DEGREES = 0.02;
+
+    private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public record Position(long executiveId, double lat, double lon, Instant recordedAt) {
+    }
+
+    public record Match(long executiveId, double distanceKm, double score) {
+    }
+
+    // Newest wins: a fix recorded before the one already held is ignored. Returns whether it was applied.
+    public boolean update(long executiveId, double lat, double lon, Instant recordedAt) {
+        Position next = new Position(executiveId, lat, lon, recordedAt);
+        boolean[] applied = new boolean[1];
+        positions.compute(executiveId, (id, current) -> {
+            if (current != null && current.recordedAt().isAfter(recordedAt)) {
+                return current;
+            }
+            long from = current == null ? Long.MIN_VALUE : cellOf(current.lat(), current.lon());
+            long to = cellOf(lat, lon);
+            if (from != to) {
+                if (current != null) {
+                    removeFromCell(from, id);
+                }
+                // Added inside compute so a concurrent removeFromCell cannot drop the set we are adding to
+                cells.compute(to, (key, members) -> {
+                    Set<Long> target = members != null ? members : ConcurrentHashMap.newKeySet();
+                    target.add(id);
+                    return target;
+                });
+            }
+            applied[0] = true;
+            return next;
+        });
+        return applied[0];
+    }
+
+    public void remove(long executiveId) {
+        positions.computeIfPresent(executiveId, (id, current) -> {
+            removeFromCell(cellOf(current.lat(), current.lon()), id);
+            return null;
+        });
+    }
+
+    public Optional<Position> get(long executiveId) {
+        return Optional.ofNullable(positions.get(executiveId));
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    // Lowest-scoring executive within maxRadiusKm, where score = distance + extraCostKm(id). extraCostKm must
+    // never be negative: the search prunes rings by distance alone, which is only a lower bound on the score.
+    public Optional<Match> best(double lat, double lon, double maxRadiusKm, Instant freshSince,
+                                LongPredicate eligible, LongToDoubleFunction extraCostKm) {
+        double cosLat = Math.cos(Math.toRadians(lat));
+        // Narrowest cell width anywhere in the search band (longitude cells shrink towards the poles)
+        double edgeLat = Math.min(89.9, Math.abs(lat) + maxRadiusKm / GeoUtils.KM_PER_DEGREE_LAT);
+        double minCellKm = CELL_DEGREES * GeoUtils.KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(edgeLat));
+        int maxRing = (int) Math.ceil(maxRadiusKm / minCellKm) + 1;
+
+        int originLat = index(lat);
+        int originLon = index(lon);
+        Match best = null;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every point in this ring is at least (ring - 1) full cells away from the query point
+            if (best != null && (ring - 1) * minCellKm > best.score()) {
+                break;
+            }
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                boolean edgeRow = Math.abs(dLat) == ring;
+                for (int dLon = -ring; dLon <= ring; dLon += edgeRow ? 1 : 2 * ring) {
+                    Set<Long> members = cells.get(key(originLat + dLat, originLon + dLon));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (Long id : members) {
+                        Position position = positions.get(id);
+                        if (position == null || position.recordedAt().isBefore(freshSince) || !eligible.test(id)) {
+                            continue;
+                        }
+                        double distance = GeoUtils.haversineKm(lat, lon, cosLat,
+                                position.lat(), position.lon(), Math.cos(Math.toRadians(position.lat())));
+                        if (distance > maxRadiusKm) {
+                            continue;
+                        }
+                        double score = distance + extraCostKm.applyAsDouble(id);
+                        if (best == null || score < best.score()) {
+                            best = new Match(id, distance, score);
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private void removeFromCell(long cell, long executiveId) {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(executiveId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private static int index(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellOf(double lat, double lon) {
+        return key(index(lat), index(lon));
+    }
+
+    private static long key(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,309 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.event.InventoryStockChangedEvent;
+import com.certaint.curevo.event.ProductDeletedEvent;
+import com.certaint.curevo.util.GeoUtils;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Which products are in stock where, as compressed bitmaps of product IDs.
+// Every store has a bitmap of the products it has in stock, and stores are grouped into fixed
+// geocells that keep the union of their stores' bitmaps. A radius query ORs the unions of cells lying
+// completely inside the circle and only looks at individual stores in cells crossing its edge.
+// Bits only change when a stock value crosses zero.
+@Component
+public class ProductAvailabilityIndex {
+
+    // About 5.5 km of latitude per cell
+    private static final double CELL_SIZE_DEGREES = 0.05;
+    private static final int COLUMNS = (int) Math.round(360 / CELL_SIZE_DEGREES);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, RoaringBitmap> storeBitmaps = new HashMap<>();
+    private final Map<Long, StoreLocation> storeLocations = new HashMap<>();
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    public record InStockEntry(Long storeId, Long productId) {
+    }
+
+    private record StoreLocation(long cellKey, double lat, double lon, double cosLat) {
+    }
+
+    private static final class Cell {
+        final double minLat;
+        final double minLon;
+        final Set<Long> storeIds = new HashSet<>();
+        final RoaringBitmap union = new RoaringBitmap();
+
+        Cell(double minLat, double minLon) {
+            this.minLat = minLat;
+            this.minLon = minLon;
+        }
+    }
+
+    // inStock holds (storeId, productId) pairs with stock > 0
+    public void rebuild(Collection<Store> stores, Collection<InStockEntry> inStock) {
+        lock.writeLock().lock();
+        try {
+            storeBitmaps.clear();
+            storeLocations.clear();
+            cells.clear();
+            for (InStockEntry entry : inStock) {
+                storeBitmaps.computeIfAbsent(entry.storeId(), id -> new RoaringBitmap()).add(toBit(entry.productId()));
+            }
+            for (Store store : stores) {
+                placeStore(store.getStoreId(), store.getLatitude(), store.getLongitude());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called when a store is created or moved
+    public void upsertStore(Store store) {
+        lock.writeLock().lock();
+        try {
+            unplaceStore(store.getStoreId());
+            placeStore(store.getStoreId(), store.getLatitude(), store.getLongitude());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeStore(Long storeId) {
+        lock.writeLock().lock();
+        try {
+            unplaceStore(storeId);
+            storeBitmaps.remove(storeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setStock(Long storeId, Long productId, int stock) {
+        int bit = toBit(productId);
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap bitmap = storeBitmaps.computeIfAbsent(storeId, id -> new RoaringBitmap());
+            boolean inStock = stock > 0;
+            if (bitmap.contains(bit) == inStock) {
+                return;
+            }
+            StoreLocation location = storeLocations.get(storeId);
+            Cell cell = location != null ? cells.get(location.cellKey()) : null;
+            if (inStock) {
+                bitmap.add(bit);
+                if (cell != null) {
+                    cell.union.add(bit);
+                }
+            } else {
+                bitmap.remove(bit);
+                if (cell != null && !anyStoreHas(cell, bit)) {
+                    cell.union.remove(bit);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeProduct(Long productId) {
+        int bit = toBit(productId);
+        lock.writeLock().lock();
+        try {
+            // Only the cells of stores that carried the product can have the bit in their union
+            for (Map.Entry<Long, RoaringBitmap> entry : storeBitmaps.entrySet()) {
+                if (!entry.getValue().checkedRemove(bit)) {
+                    continue;
+                }
+                StoreLocation location = storeLocations.get(entry.getKey());
+                Cell cell = location != null ? cells.get(location.cellKey()) : null;
+                if (cell != null) {
+                    cell.union.remove(bit);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(InventoryStockChangedEvent event) {
+        setStock(event.storeId(), event.productId(), event.stock());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        removeProduct(event.productId());
+    }
+
+    // Products in stock in at least one store within radiusKm; the caller owns the returned bitmap.
+    // The cells covering the circle's bounding box are looked up by key, so the cost depends on the
+    // radius, not on how many cells exist; only a box with more cells than the index holds scans them all.
+    public RoaringBitmap inStockWithin(double lat, double lon, double radiusKm) {
+        double radius = Math.min(radiusKm, GeoUtils.MAX_DISTANCE_KM);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double latDelta = radius / GeoUtils.KM_PER_DEGREE_LAT;
+        double lonDelta = GeoUtils.longitudeDelta(lat, radius);
+
+        int firstRow = index(Math.max(-90.0, lat - latDelta));
+        int lastRow = index(Math.min(90.0, lat + latDelta));
+        int firstColumn = index(lon - lonDelta);
+        int columnSpan = lonDelta >= 180.0 ? COLUMNS : Math.min(COLUMNS, index(lon + lonDelta) - firstColumn + 1);
+
+        RoaringBitmap result = new RoaringBitmap();
+        lock.readLock().lock();
+        try {
+            if ((long) (lastRow - firstRow + 1) * columnSpan <= cells.size()) {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int c = 0; c < columnSpan; c++) {
+                        Cell cell = cells.get(cellKey(row, wrapColumn(firstColumn + c)));
+                        if (cell != null) {
+                            collect(cell, lat, lon, cosLat, radius, result);
+                        }
+                    }
+                }
+            } else {
+                for (Cell cell : cells.values()) {
+                    double maxLat = cell.minLat + CELL_SIZE_DEGREES;
+                    double maxLon = cell.minLon + CELL_SIZE_DEGREES;
+                    if (maxLat < lat - latDelta || cell.minLat > lat + latDelta) {
+                        continue;
+                    }
+                    if (lonDelta < 180.0 && !overlapsLongitude(cell.minLon, maxLon, lon, lonDelta)) {
+                        continue;
+                    }
+                    collect(cell, lat, lon, cosLat, radius, result);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Callers must hold the read lock
+    private void collect(Cell cell, double lat, double lon, double cosLat, double radius, RoaringBitmap result) {
+        if (cornersWithin(cell, lat, lon, radius)) {
+            result.or(cell.union);
+            return;
+        }
+        // Cell crosses the edge of the circle: check its stores one by one
+        for (Long storeId : cell.storeIds) {
+            StoreLocation location = storeLocations.get(storeId);
+            RoaringBitmap bitmap = storeBitmaps.get(storeId);
+            if (bitmap != null && GeoUtils.haversineKm(lat, lon, cosLat, location.lat(), location.lon(), location.cosLat()) <= radius) {
+                result.or(bitmap);
+            }
+        }
+    }
+
+    // Products in stock in at least one store anywhere; the caller owns the returned bitmap
+    public RoaringBitmap inStockAnywhere() {
+        lock.readLock().lock();
+        try {
+            return FastAggregation.or(storeBitmaps.values().iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers must hold the write lock
+    private void placeStore(Long storeId, Double lat, Double lon) {
+        if (storeId == null || lat == null || lon == null) {
+            return;
+        }
+        int latIndex = index(lat);
+        int lonIndex = wrapColumn(index(lon));
+        long cellKey = cellKey(latIndex, lonIndex);
+        storeLocations.put(storeId, new StoreLocation(cellKey, lat, lon, Math.cos(Math.toRadians(lat))));
+
+        Cell cell = cells.computeIfAbsent(cellKey, key -> new Cell(latIndex * CELL_SIZE_DEGREES, lonIndex * CELL_SIZE_DEGREES));
+        cell.storeIds.add(storeId);
+        RoaringBitmap bitmap = storeBitmaps.get(storeId);
+        if (bitmap != null) {
+            cell.union.or(bitmap);
+        }
+    }
+
+    // Callers must hold the write lock
+    private void unplaceStore(Long storeId) {
+        StoreLocation location = storeLocations.remove(storeId);
+        if (location == null) {
+            return;
+        }
+        Cell cell = cells.get(location.cellKey());
+        cell.storeIds.remove(storeId);
+        if (cell.storeIds.isEmpty()) {
+            cells.remove(location.cellKey());
+            return;
+        }
+        // Rebuild the union from the stores that are left
+        cell.union.clear();
+        for (Long remainingStoreId : cell.storeIds) {
+            RoaringBitmap bitmap = storeBitmaps.get(remainingStoreId);
+            if (bitmap != null) {
+                cell.union.or(bitmap);
+            }
+        }
+    }
+
+    private boolean anyStoreHas(Cell cell, int bit) {
+        for (Long storeId : cell.storeIds) {
+            RoaringBitmap bitmap = storeBitmaps.get(storeId);
+            if (bitmap != null && bitmap.contains(bit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A cell this small is treated as inside the circle when all four of its corners are
+    private boolean cornersWithin(Cell cell, double lat, double lon, double radius) {
+        double maxLat = cell.minLat + CELL_SIZE_DEGREES;
+        double maxLon = cell.minLon + CELL_SIZE_DEGREES;
+        return GeoUtils.haversineKm(lat, lon, cell.minLat, cell.minLon) <= radius
+                && GeoUtils.haversineKm(lat, lon, cell.minLat, maxLon) <= radius
+                && GeoUtils.haversineKm(lat, lon, maxLat, cell.minLon) <= radius
+                && GeoUtils.haversineKm(lat, lon, maxLat, maxLon) <= radius;
+    }
+
+    private boolean overlapsLongitude(double minLon, double maxLon, double lon, double lonDelta) {
+        // Compare against the search window shifted by a full turn as well, so it works across the antimeridian
+        for (double shift : new double[]{-360.0, 0.0, 360.0}) {
+            if (maxLon >= lon - lonDelta + shift && minLon <= lon + lonDelta + shift) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int index(double degrees) {
+        return (int) Math.floor(degrees / CELL_SIZE_DEGREES);
+    }
+
+    // Longitude indexes of the search box may run past the antimeridian; cells are keyed in [-180, 180)
+    private static int wrapColumn(int column) {
+        return Math.floorMod(column + COLUMNS / 2, COLUMNS) - COLUMNS / 2;
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    private static int toBit(Long productId) {
+        return Math.toIntExact(productId);
+    }
+}
@@ -0,0 +1,116 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.enums.ProductCategory;
+import com.certaint.curevo.event.ProductChangedEvent;
+import com.certaint.curevo.event.ProductDeletedEvent;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Product IDs per category as bitmaps. Facet counts are the intersection sizes of these with an
+// availability bitmap from ProductAvailabilityIndex, so counting never touches the database.
+@Component
+public class ProductCategoryIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<ProductCategory, RoaringBitmap> categoryBitmaps = new EnumMap<>(ProductCategory.class);
+    private final Map<Long, ProductCategory> productCategories = new HashMap<>();
+
+    public void rebuild(Collection<ProductDocument> products) {
+        lock.writeLock().lock();
+        try {
+            categoryBitmaps.clear();
+            productCategories.clear();
+            for (ProductDocument product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(ProductDocument product) {
+        if (product.productId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(product.productId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        upsert(event.product());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        remove(event.productId());
+    }
+
+    // The caller owns the returned bitmap
+    public RoaringBitmap productsIn(ProductCategory category) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = categoryBitmaps.get(category);
+            return bitmap != null ? bitmap.clone() : new RoaringBitmap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // How many of the given products fall into each category, in enum order and including empty categories
+    public Map<ProductCategory, Long> countsWithin(RoaringBitmap products) {
+        Map<ProductCategory, Long> counts = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (ProductCategory category : ProductCategory.values()) {
+                RoaringBitmap bitmap = categoryBitmaps.get(category);
+                counts.put(category, bitmap != null ? RoaringBitmap.andCardinality(bitmap, products) : 0L);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    // Callers must hold the write lock
+    private void add(ProductDocument product) {
+        if (product.category() == null) {
+            return;
+        }
+        categoryBitmaps.computeIfAbsent(product.category(), category -> new RoaringBitmap())
+                .add(Math.toIntExact(product.productId()));
+        productCategories.put(product.productId(), product.category());
+    }
+
+    // Callers must hold the write lock
+    private void delete(Long productId) {
+        ProductCategory category = productCategories.remove(productId);
+        if (category != null) {
+            categoryBitmaps.get(category).remove(Math.toIntExact(productId));
+        }
+    }
+}
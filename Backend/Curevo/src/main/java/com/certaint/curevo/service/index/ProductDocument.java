@@ -0,0 +1,13 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.entity.Product;
+import com.certaint.curevo.enums.ProductCategory;
+
+// The searchable fields of a product, detached from the JPA entity so in-memory indexes never
+// hold on to managed entities (and so they can be loaded with a single projection query).
+public record ProductDocument(Long productId, String name, String description, ProductCategory category) {
+
+    public static ProductDocument of(Product product) {
+        return new ProductDocument(product.getProductId(), product.getName(), product.getDescription(), product.getCategory());
+    }
+}
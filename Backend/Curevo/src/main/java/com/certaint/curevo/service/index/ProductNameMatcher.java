@@ -0,0 +1,285 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.event.ProductChangedEvent;
+import com.certaint.curevo.event.ProductDeletedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typo-tolerant lookup over the words that appear in product names (SymSpell-style).
+// Every dictionary word is stored under all the strings obtained by deleting up to two of its
+// characters. A misspelled word is matched by generating its own deletes and looking them up, so a
+// lookup is a handful of hash probes instead of a comparison against every product name.
+@Component
+public class ProductNameMatcher {
+
+    private static final int MAX_EDIT_DISTANCE = 2;
+    // Only the first characters of a word go into the delete dictionary, which keeps it small;
+    // candidates are verified against the whole word afterwards
+    private static final int PREFIX_LENGTH = 7;
+    // Shorter words are too ambiguous to correct ("vit" is one edit away from far too much)
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // word -> number of products whose name contains it
+    private final Map<String, Integer> wordCounts = new HashMap<>();
+    // delete variant -> dictionary words that produce it
+    private final Map<String, Set<String>> deletes = new HashMap<>();
+    // productId -> distinct words of its name
+    private final Map<Long, Set<String>> productWords = new HashMap<>();
+
+    public record Suggestion(String text, int distance, int frequency) {
+    }
+
+    public void rebuild(Collection<ProductDocument> products) {
+        lock.writeLock().lock();
+        try {
+            wordCounts.clear();
+            deletes.clear();
+            productWords.clear();
+            for (ProductDocument product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(ProductDocument product) {
+        if (product.productId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(product.productId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        upsert(event.product());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        remove(event.productId());
+    }
+
+    // Dictionary words within MAX_EDIT_DISTANCE of the given word, closest and most common first
+    public List<Suggestion> lookup(String word, int limit) {
+        String input = word.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            Integer exactCount = wordCounts.get(input);
+            if (exactCount != null) {
+                return List.of(new Suggestion(input, 0, exactCount));
+            }
+            if (input.length() < MIN_WORD_LENGTH) {
+                return List.of();
+            }
+
+            Set<String> variants = new HashSet<>();
+            String prefix = prefix(input);
+            variants.add(prefix);
+            generateDeletes(prefix, 0, variants);
+
+            Set<String> candidates = new HashSet<>();
+            for (String variant : variants) {
+                Set<String> words = deletes.get(variant);
+                if (words != null) {
+                    candidates.addAll(words);
+                }
+            }
+
+            List<Suggestion> suggestions = new ArrayList<>();
+            for (String candidate : candidates) {
+                if (Math.abs(candidate.length() - input.length()) > MAX_EDIT_DISTANCE) {
+                    continue;
+                }
+                int distance = editDistance(input, candidate, MAX_EDIT_DISTANCE);
+                if (distance <= MAX_EDIT_DISTANCE) {
+                    suggestions.add(new Suggestion(candidate, distance, wordCounts.get(candidate)));
+                }
+            }
+            suggestions.sort(SUGGESTION_ORDER);
+            return suggestions.size() > limit ? new ArrayList<>(suggestions.subList(0, limit)) : suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Respellings of a whole query, built word by word; words already in the dictionary (or too
+    // short/unknown to correct) are kept as typed. Returns nothing if no word needed correcting.
+    public List<Suggestion> suggest(String query, int limit) {
+        List<String> tokens = ProductSearchIndex.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // Small beam search over per-word candidates, ranked by total distance then rarest word
+        List<Suggestion> beam = List.of(new Suggestion("", 0, Integer.MAX_VALUE));
+        for (String token : tokens) {
+            List<Suggestion> candidates = lookup(token, limit);
+            if (candidates.isEmpty()) {
+                candidates = List.of(new Suggestion(token, 0, 0));
+            }
+            List<Suggestion> next = new ArrayList<>();
+            for (Suggestion partial : beam) {
+                for (Suggestion candidate : candidates) {
+                    next.add(new Suggestion(
+                            partial.text().isEmpty() ? candidate.text() : partial.text() + " " + candidate.text(),
+                            partial.distance() + candidate.distance(),
+                            Math.min(partial.frequency(), candidate.frequency())));
+                }
+            }
+            next.sort(SUGGESTION_ORDER);
+            beam = next.size() > limit ? next.subList(0, limit) : next;
+        }
+
+        String typed = String.join(" ", tokens);
+        List<Suggestion> result = new ArrayList<>();
+        for (Suggestion suggestion : beam) {
+            if (suggestion.distance() > 0 && !suggestion.text().equals(typed)) {
+                result.add(suggestion);
+            }
+        }
+        return result;
+    }
+
+    // The single best respelling of a query, if any word in it looks misspelled
+    public Optional<String> correct(String query) {
+        return suggest(query, 1).stream().findFirst().map(Suggestion::text);
+    }
+
+    private static final Comparator<Suggestion> SUGGESTION_ORDER = Comparator
+            .comparingInt(Suggestion::distance)
+            .thenComparing(Comparator.comparingInt(Suggestion::frequency).reversed())
+            .thenComparing(Suggestion::text);
+
+    // Callers must hold the write lock
+    private void add(ProductDocument product) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String token : ProductSearchIndex.tokenize(product.name())) {
+            if (token.length() >= MIN_WORD_LENGTH) {
+                words.add(token);
+            }
+        }
+        if (words.isEmpty()) {
+            return;
+        }
+        productWords.put(product.productId(), words);
+        for (String word : words) {
+            if (wordCounts.merge(word, 1, Integer::sum) == 1) {
+                for (String variant : variantsOf(word)) {
+                    deletes.computeIfAbsent(variant, key -> new HashSet<>()).add(word);
+                }
+            }
+        }
+    }
+
+    // Callers must hold the write lock
+    private void delete(Long productId) {
+        Set<String> words = productWords.remove(productId);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Integer remaining = wordCounts.computeIfPresent(word, (key, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null) {
+                for (String variant : variantsOf(word)) {
+                    Set<String> variantWords = deletes.get(variant);
+                    if (variantWords != null) {
+                        variantWords.remove(word);
+                        if (variantWords.isEmpty()) {
+                            deletes.remove(variant);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> variantsOf(String word) {
+        Set<String> variants = new HashSet<>();
+        String prefix = prefix(word);
+        variants.add(prefix);
+        generateDeletes(prefix, 0, variants);
+        return variants;
+    }
+
+    private static String prefix(String word) {
+        return word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+    }
+
+    private static void generateDeletes(String word, int distance, Set<String> variants) {
+        if (distance >= MAX_EDIT_DISTANCE || word.length() <= 1) {
+            return;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            String variant = word.substring(0, i) + word.substring(i + 1);
+            if (variants.add(variant)) {
+                generateDeletes(variant, distance + 1, variants);
+            }
+        }
+    }
+
+    // Optimal string alignment distance (insertions, deletions, substitutions and adjacent
+    // transpositions); returns maxDistance + 1 as soon as the result is known to exceed it
+    static int editDistance(String a, String b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        int[] previousPrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m];
+    }
+}
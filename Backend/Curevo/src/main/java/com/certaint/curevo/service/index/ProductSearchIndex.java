@@ -0,0 +1,255 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.event.ProductChangedEvent;
+import com.certaint.curevo.event.ProductDeletedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over product name, description and category.
+// Every word is indexed as its edge n-grams ("par", "para", "parac", ...) so search-as-you-type
+// prefixes hit the index directly, and results are ranked with BM25. Whole words are also indexed
+// under an exact-match key so "paracetamol" ranks a product named "Paracetamol" above "Paracetamolum".
+// Grams start at MIN_GRAM characters; a shorter query word ("c" in "vitamin c") is matched against a
+// separate key holding each word's first character, so one-letter searches still find prefixes.
+@Component
+public class ProductSearchIndex {
+
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 20;
+    private static final String EXACT_PREFIX = "=";
+    private static final String INITIAL_PREFIX = "^";
+
+    // Field boosts: a hit in the name matters more than one in the description
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> weighted term frequency)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    // productId -> terms it was indexed under, needed to remove it again
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    // productId -> weighted number of words
+    private final Map<Long, Float> documentLengths = new HashMap<>();
+    private double totalLength;
+
+    public void rebuild(Collection<ProductDocument> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            for (ProductDocument product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(ProductDocument product) {
+        if (product.productId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(product.productId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The index only changes once the product write is committed, so a rolled back save never shows up in search.
+    // fallbackExecution covers writes made outside a transaction (e.g. updateProduct).
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        upsert(event.product());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        remove(event.productId());
+    }
+
+    // Every product ID matching every word of the query, best match first
+    public List<Long> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    // Product IDs matching every word of the query, best match first
+    public List<Long> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documentLengths.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = totalLength / documentCount;
+
+            Map<Long, Double> scores = null;
+            for (String token : new LinkedHashSet<>(queryTokens)) {
+                String gram = token.length() < MIN_GRAM ? INITIAL_PREFIX + token
+                        : token.length() > MAX_GRAM ? token.substring(0, MAX_GRAM) : token;
+                Map<Long, Float> prefixPostings = postings.get(gram);
+                if (prefixPostings == null) {
+                    // Every word has to match something, so one miss means no results
+                    return List.of();
+                }
+
+                Map<Long, Double> tokenScores = new HashMap<>();
+                accumulate(tokenScores, prefixPostings, documentCount, averageLength);
+                Map<Long, Float> exactPostings = postings.get(EXACT_PREFIX + token);
+                if (exactPostings != null) {
+                    accumulate(tokenScores, exactPostings, documentCount, averageLength);
+                }
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<Long, Double> intersection = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double tokenScore = tokenScores.get(entry.getKey());
+                        if (tokenScore != null) {
+                            intersection.put(entry.getKey(), entry.getValue() + tokenScore);
+                        }
+                    }
+                    scores = intersection;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            List<Long> productIds = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                productIds.add(ranked.get(i).getKey());
+            }
+            return productIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void accumulate(Map<Long, Double> scores, Map<Long, Float> termPostings, int documentCount, double averageLength) {
+        int df = termPostings.size();
+        double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+        for (Map.Entry<Long, Float> posting : termPostings.entrySet()) {
+            double tf = posting.getValue();
+            double length = documentLengths.getOrDefault(posting.getKey(), 0f);
+            double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+            scores.merge(posting.getKey(), score, Double::sum);
+        }
+    }
+
+    // Callers must hold the write lock
+    private void add(ProductDocument product) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, product.name(), NAME_WEIGHT);
+        length += addField(frequencies, product.description(), DESCRIPTION_WEIGHT);
+        length += addField(frequencies, product.category() != null ? product.category().name() : null, CATEGORY_WEIGHT);
+        if (length == 0) {
+            return;
+        }
+
+        Long productId = product.productId();
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(productId, entry.getValue());
+        }
+        documentTerms.put(productId, new HashSet<>(frequencies.keySet()));
+        documentLengths.put(productId, length);
+        totalLength += length;
+    }
+
+    // Callers must hold the write lock
+    private void delete(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Float length = documentLengths.remove(productId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    private float addField(Map<String, Float> frequencies, String text, float weight) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(EXACT_PREFIX + token, weight, Float::sum);
+            frequencies.merge(INITIAL_PREFIX + token.substring(0, 1), weight, Float::sum);
+            int maxLength = Math.min(token.length(), MAX_GRAM);
+            for (int end = Math.min(MIN_GRAM, maxLength); end <= maxLength; end++) {
+                frequencies.merge(token.substring(0, end), weight, Float::sum);
+            }
+        }
+        return tokens.size() * weight;
+    }
+
+    // Lower-cased runs of letters and digits; underscores split enum names like PERSONAL_CARE
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
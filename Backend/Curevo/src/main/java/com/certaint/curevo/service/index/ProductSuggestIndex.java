@@ -0,0 +1,49 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.event.ProductChangedEvent;
+import com.certaint.curevo.event.ProductDeletedEvent;
+import com.certaint.curevo.event.ProductsOrderedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Autocomplete over product names, ranked by how many units of each product have been ordered
+@Component
+public class ProductSuggestIndex {
+
+    private final CompletionTrie trie = new CompletionTrie();
+
+    public void rebuild(Collection<ProductDocument> products, Map<Long, Long> unitsOrdered) {
+        trie.rebuild(products.stream()
+                .map(product -> new CompletionTrie.Item(product.productId(), product.name(),
+                        unitsOrdered.getOrDefault(product.productId(), 0L)))
+                .toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        trie.put(event.product().productId(), event.product().name(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        trie.remove(event.productId());
+    }
+
+    // Only counted once the order is committed, so a rolled back order never bumps the ranking
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsOrdered(ProductsOrderedEvent event) {
+        event.unitsByProduct().forEach(this::recordOrdered);
+    }
+
+    public void recordOrdered(Long productId, int quantity) {
+        trie.addScore(productId, quantity);
+    }
+
+    public List<CompletionTrie.Completion> suggest(String prefix, int limit) {
+        return trie.topK(prefix, limit);
+    }
+}
@@ -0,0 +1,226 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.service.StoreService.StoreDistanceInfo;
+import com.certaint.curevo.util.GeoUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// In-memory index of store coordinates used for radius and nearest-store lookups.
+// Stores are kept in primitive arrays sorted by latitude, plus a grid of lat/lon cells pointing
+// into those arrays. A radius query enumerates the cells covering the search circle's bounding
+// box, so it only touches stores near the query point. The arrays are replaced as a whole on
+// every write, so readers never need a lock.
+@Component
+public class StoreGeoIndex {
+
+    // About 11 km of latitude per cell; a typical search radius covers a few dozen cells
+    private static final double CELL_DEGREES = 0.1;
+    private static final int COLUMNS = (int) Math.round(360 / CELL_DEGREES);
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public synchronized void rebuild(Collection<Store> stores) {
+        List<Entry> entries = new ArrayList<>(stores.size());
+        for (Store store : stores) {
+            if (store.getStoreId() != null && store.getLatitude() != null && store.getLongitude() != null) {
+                entries.add(new Entry(store.getStoreId(), store.getLatitude(), store.getLongitude()));
+            }
+        }
+        snapshot = Snapshot.of(entries);
+    }
+
+    public synchronized void upsert(Store store) {
+        List<Entry> entries = snapshot.entries();
+        entries.removeIf(entry -> entry.storeId() == store.getStoreId());
+        if (store.getLatitude() != null && store.getLongitude() != null) {
+            entries.add(new Entry(store.getStoreId(), store.getLatitude(), store.getLongitude()));
+        }
+        snapshot = Snapshot.of(entries);
+    }
+
+    public synchronized void remove(Long storeId) {
+        List<Entry> entries = snapshot.entries();
+        if (entries.removeIf(entry -> entry.storeId() == storeId)) {
+            snapshot = Snapshot.of(entries);
+        }
+    }
+
+    public int size() {
+        return snapshot.ids.length;
+    }
+
+    // All stores within radiusKm of the given point, closest first
+    public List<StoreDistanceInfo> findWithinRadius(double lat, double lon, double radiusKm) {
+        Snapshot current = snapshot;
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double latDelta = radiusKm / GeoUtils.KM_PER_DEGREE_LAT;
+        double lonDelta = GeoUtils.longitudeDelta(lat, radiusKm);
+
+        int firstRow = row(Math.max(-90.0, lat - latDelta));
+        int lastRow = row(Math.min(90.0, lat + latDelta));
+        int columnSpan = lonDelta >= 180.0 ? COLUMNS
+                : Math.min(COLUMNS, column(lon + lonDelta) - column(lon - lonDelta) + 1);
+
+        List<StoreDistanceInfo> result = new ArrayList<>();
+        if ((long) (lastRow - firstRow + 1) * columnSpan <= current.cells.size()) {
+            // Covering cells of the bounding box; columns wrap around the antimeridian
+            int firstColumn = column(lon - lonDelta);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int c = 0; c < columnSpan; c++) {
+                    int[] members = current.cells.get(key(row, Math.floorMod(firstColumn + c, COLUMNS)));
+                    if (members != null) {
+                        for (int i : members) {
+                            addIfWithin(current, i, lat, lon, cosLat, radiusKm, result);
+                        }
+                    }
+                }
+            }
+        } else {
+            // Huge radius: fewer stores than covering cells, so scan the latitude band instead
+            for (int i = current.lowerBound(lat - latDelta); i < current.ids.length && current.lats[i] <= lat + latDelta; i++) {
+                double lonGap = Math.abs(current.lons[i] - lon);
+                if (Math.min(lonGap, 360.0 - lonGap) <= lonDelta) {
+                    addIfWithin(current, i, lat, lon, cosLat, radiusKm, result);
+                }
+            }
+        }
+        result.sort(Comparator.comparingDouble(StoreDistanceInfo::distance));
+        return result;
+    }
+
+    private static void addIfWithin(Snapshot current, int i, double lat, double lon, double cosLat,
+                                    double radiusKm, List<StoreDistanceInfo> result) {
+        double distance = GeoUtils.haversineKm(lat, lon, cosLat, current.lats[i], current.lons[i], current.cosLats[i]);
+        if (distance <= radiusKm) {
+            result.add(current.toInfo(i, distance));
+        }
+    }
+
+    // The k stores closest to the given point, closest first
+    public List<StoreDistanceInfo> findNearest(double lat, double lon, int k) {
+        Snapshot current = snapshot;
+        if (k <= 0 || current.ids.length == 0) {
+            return List.of();
+        }
+        double cosLat = Math.cos(Math.toRadians(lat));
+
+        // Max-heap on distance holding the best k candidates seen so far
+        PriorityQueue<StoreDistanceInfo> best = new PriorityQueue<>(
+                Comparator.comparingDouble(StoreDistanceInfo::distance).reversed());
+
+        // Walk outwards from the user's latitude in both directions. The latitude gap alone is a
+        // lower bound on the distance, so a side can stop once it cannot beat the current k-th hit.
+        int up = current.lowerBound(lat);
+        int down = up - 1;
+        while (up < current.ids.length || down >= 0) {
+            double upGap = up < current.ids.length ? (current.lats[up] - lat) * GeoUtils.KM_PER_DEGREE_LAT : Double.MAX_VALUE;
+            double downGap = down >= 0 ? (lat - current.lats[down]) * GeoUtils.KM_PER_DEGREE_LAT : Double.MAX_VALUE;
+            int i = upGap <= downGap ? up++ : down--;
+            double gap = Math.min(upGap, downGap);
+            if (best.size() == k && gap > best.peek().distance()) {
+                break;
+            }
+            double distance = GeoUtils.haversineKm(lat, lon, cosLat, current.lats[i], current.lons[i], current.cosLats[i]);
+            if (best.size() < k) {
+                best.add(current.toInfo(i, distance));
+            } else if (distance < best.peek().distance()) {
+                best.poll();
+                best.add(current.toInfo(i, distance));
+            }
+        }
+
+        List<StoreDistanceInfo> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(StoreDistanceInfo::distance));
+        return result;
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor((lat + 90.0) / CELL_DEGREES);
+    }
+
+    private static int column(double lon) {
+        return (int) Math.floor((lon + 180.0) / CELL_DEGREES);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private record Entry(long storeId, double lat, double lon) {
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new long[0], new double[0], new double[0], new double[0], Map.of());
+
+        final long[] ids;
+        final double[] lats;
+        final double[] lons;
+        final double[] cosLats;
+        // Grid cell -> positions in the arrays above; never modified after construction
+        final Map<Long, int[]> cells;
+
+        private Snapshot(long[] ids, double[] lats, double[] lons, double[] cosLats, Map<Long, int[]> cells) {
+            this.ids = ids;
+            this.lats = lats;
+            this.lons = lons;
+            this.cosLats = cosLats;
+            this.cells = cells;
+        }
+
+        static Snapshot of(List<Entry> entries) {
+            entries.sort(Comparator.comparingDouble(Entry::lat));
+            int n = entries.size();
+            long[] ids = new long[n];
+            double[] lats = new double[n];
+            double[] lons = new double[n];
+            double[] cosLats = new double[n];
+            Map<Long, List<Integer>> grid = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Entry entry = entries.get(i);
+                ids[i] = entry.storeId();
+                lats[i] = entry.lat();
+                lons[i] = entry.lon();
+                cosLats[i] = Math.cos(Math.toRadians(entry.lat()));
+                grid.computeIfAbsent(key(row(entry.lat()), Math.floorMod(column(entry.lon()), COLUMNS)),
+                        cell -> new ArrayList<>()).add(i);
+            }
+            Map<Long, int[]> cells = new HashMap<>(grid.size() * 2);
+            grid.forEach((cell, members) -> cells.put(cell, members.stream().mapToInt(Integer::intValue).toArray()));
+            return new Snapshot(ids, lats, lons, cosLats, cells);
+        }
+
+        List<Entry> entries() {
+            List<Entry> entries = new ArrayList<>(ids.length + 1);
+            for (int i = 0; i < ids.length; i++) {
+                entries.add(new Entry(ids[i], lats[i], lons[i]));
+            }
+            return entries;
+        }
+
+        // First position whose latitude is >= lat
+        int lowerBound(double lat) {
+            int index = Arrays.binarySearch(lats, lat);
+            if (index < 0) {
+                return -index - 1;
+            }
+            while (index > 0 && lats[index - 1] == lat) {
+                index--;
+            }
+            return index;
+        }
+
+        StoreDistanceInfo toInfo(int i, double distance) {
+            return new StoreDistanceInfo(ids[i], distance, lats[i], lons[i]);
+        }
+    }
+}
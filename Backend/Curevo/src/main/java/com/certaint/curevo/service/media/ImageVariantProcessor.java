@@ -0,0 +1,281 @@
+package com.certaint.curevo.service.media;
+
+import com.certaint.curevo.enums.ImageVariant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Decodes an uploaded image once and re-encodes it into the requested sizes. Only pixels are written
+// back out, so EXIF (GPS position, camera serial, ...) never reaches the image host; the EXIF
+// orientation is applied to the pixels first so phone photos are not shown sideways.
+@Component
+public class ImageVariantProcessor {
+
+    // Refuse anything larger before decoding a single pixel (decompression bombs)
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+
+    // Upper bound on the decoded bitmap; bigger sources are subsampled while decoding
+    private static final long MAX_DECODED_PIXELS = 24_000_000L;
+
+    private static final int EXIF_SCAN_BYTES = 64 * 1024;
+
+    // "webp" is used when an ImageIO WebP plugin is on the classpath, otherwise variants fall back to JPEG
+    @Value("${curevo.media.variants.format:webp}")
+    private String preferredFormat;
+
+    @Value("${curevo.media.variants.quality:0.82}")
+    private float quality;
+
+    // Writes one temp file per requested variant, or returns null when the source is not a raster image
+    // ImageIO can decode. The caller owns the returned files and must delete them.
+    public Map<ImageVariant, Path> process(Path source, Set<ImageVariant> variants) {
+        BufferedImage decoded = decode(source, largestEdge(variants));
+        if (decoded == null) {
+            return null;
+        }
+        BufferedImage oriented = applyOrientation(decoded, readExifOrientation(source));
+
+        String format = outputFormat();
+        Map<ImageVariant, Path> files = new EnumMap<>(ImageVariant.class);
+        try {
+            // Largest first, so each smaller variant is scaled from the previous one instead of the full bitmap
+            BufferedImage previous = oriented;
+            List<ImageVariant> ordered = new ArrayList<>(variants);
+            ordered.sort(Comparator.comparingInt(ImageVariant::getMaxEdge).reversed());
+            for (ImageVariant variant : ordered) {
+                previous = scaleToFit(previous, variant.getMaxEdge());
+                Path target = Files.createTempFile("curevo-" + variant.name().toLowerCase() + "-", "." + format);
+                files.put(variant, target);
+                write(previous, format, target);
+            }
+            return files;
+        } catch (IOException e) {
+            files.values().forEach(ImageVariantProcessor::deleteQuietly);
+            throw new UncheckedIOException("Failed to encode image variants", e);
+        } catch (RuntimeException e) {
+            files.values().forEach(ImageVariantProcessor::deleteQuietly);
+            throw e;
+        }
+    }
+
+    public static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Could not delete temp image " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static int largestEdge(Set<ImageVariant> variants) {
+        return variants.stream().mapToInt(ImageVariant::getMaxEdge).max().orElse(ImageVariant.FULL.getMaxEdge());
+    }
+
+    private static BufferedImage decode(Path source, int targetEdge) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                // Metadata is skipped here; the orientation is read separately from the raw EXIF block
+                reader.setInput(input, true, true);
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+                if (width * height > MAX_SOURCE_PIXELS) {
+                    throw new IllegalArgumentException("Image is too large: " + width + "x" + height);
+                }
+
+                // Subsampling while decoding keeps the bitmap small without ever materialising the full
+                // resolution; it stops while the result is still at least as large as the biggest variant
+                int bySize = (int) Math.max(1, Math.max(width, height) / targetEdge);
+                int byMemory = (int) Math.ceil(Math.sqrt((double) (width * height) / MAX_DECODED_PIXELS));
+                int subsampling = Math.max(1, Math.max(bySize / 2, byMemory));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            // Not an image ImageIO understands (or a truncated one); the caller uploads the original
+            return null;
+        }
+    }
+
+    // Halves the image until it is within 2x of the target, then does one bilinear step; this keeps
+    // the quality of an area-averaging downscale at a fraction of its cost
+    private static BufferedImage scaleToFit(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = toRgb(image);
+        while (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            int nextWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int nextHeight = Math.max(targetHeight, current.getHeight() / 2);
+            current = draw(current, nextWidth, nextHeight, null);
+        }
+        return current;
+    }
+
+    // JPEG has no alpha channel, so transparent areas are flattened onto white
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        return draw(image, image.getWidth(), image.getHeight(), null);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            if (transform != null) {
+                graphics.drawImage(source, transform, null);
+            } else {
+                graphics.drawImage(source, 0, 0, width, height, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private String outputFormat() {
+        String format = preferredFormat.toLowerCase();
+        return ImageIO.getImageWritersByFormatName(format).hasNext() ? format : "jpeg";
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (param.getCompressionType() == null && types != null && types.length > 0) {
+                    // First type is the lossy one for both JPEG and the common WebP plugins
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            if (param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            // No IIOMetadata is passed, so nothing from the source file is carried over
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Rotates/flips the pixels the way the EXIF orientation tag (1-8) says the camera was held
+    private static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swapsAxes = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.translate(width, 0); transform.scale(-1, 1); }
+            case 3 -> { transform.translate(width, height); transform.rotate(Math.PI); }
+            case 4 -> { transform.translate(0, height); transform.scale(1, -1); }
+            case 5 -> { transform.rotate(Math.PI / 2); transform.scale(1, -1); }
+            case 6 -> { transform.translate(height, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.translate(height, width); transform.rotate(Math.PI / 2); transform.scale(-1, 1); }
+            case 8 -> { transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            default -> { }
+        }
+        return swapsAxes
+                ? draw(image, height, width, transform)
+                : draw(image, width, height, transform);
+    }
+
+    // Reads the orientation tag from a JPEG's APP1/EXIF segment; 1 (upright) when there is none
+    private static int readExifOrientation(Path source) {
+        byte[] head;
+        try (InputStream input = Files.newInputStream(source)) {
+            head = input.readNBytes(EXIF_SCAN_BYTES);
+        } catch (IOException e) {
+            return 1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(head);
+        if (head.length < 4 || (buffer.getShort(0) & 0xFFFF) != 0xFFD8) {
+            return 1;
+        }
+        try {
+            int position = 2;
+            while (position + 4 <= head.length) {
+                int marker = buffer.getShort(position) & 0xFFFF;
+                int length = buffer.getShort(position + 2) & 0xFFFF;
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+                    // Start of scan (or garbage): no EXIF block before the image data
+                    return 1;
+                }
+                if (marker == 0xFFE1 && length >= 16
+                        && head[position + 4] == 'E' && head[position + 5] == 'x'
+                        && head[position + 6] == 'i' && head[position + 7] == 'f') {
+                    return orientationFromTiff(buffer, position + 10);
+                }
+                position += 2 + length;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // EXIF block extends past the scanned prefix or is corrupt
+        }
+        return 1;
+    }
+
+    private static int orientationFromTiff(ByteBuffer buffer, int tiffStart) {
+        ByteOrder order = buffer.get(tiffStart) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        ByteBuffer tiff = buffer.duplicate().order(order);
+        int ifd = tiffStart + tiff.getInt(tiffStart + 4);
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                return tiff.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,21 @@
+package com.certaint.curevo.service.media;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+// Hosted URLs of one uploaded image; a variant that was not requested is null. Files that are not
+// decodable images (e.g. PDF prescriptions) are uploaded once as-is and every variant points at that URL.
+public record ImageVariants(String full, String card, String thumbnail) {
+
+    public static ImageVariants original(String url) {
+        return new ImageVariants(url, url, url);
+    }
+
+    public List<String> urls() {
+        return Stream.of(full, card, thumbnail)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+}
@@ -0,0 +1,231 @@
+package com.certaint.curevo.service.media;
+
+import com.certaint.curevo.interfaces.ImageHostingProvider;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Garbage collector for hosted images. Every upload is recorded in tracked_media (see TrackedMedia);
+// on a schedule the reconciler pages through those rows, checks which URLs no entity column refers to
+// any more and deletes those from the image host at a bounded rate. It catches every leak path at once:
+// uploads whose transaction rolled back, deletes that failed or were never attempted, and abandoned
+// registrations. Inline deletes stay as a fast path; anything they miss is picked up here.
+@Component
+public class MediaReconciler {
+
+    // Every column that stores a hosted URL, as table -> id column, url columns
+    private static final List<Reference> REFERENCES = List.of(
+            new Reference("products", "product_id",
+                    List.of("image", "hover_image", "card_image", "thumbnail_image", "hover_card_image")),
+            new Reference("doctors", "doctor_id", List.of("image_url", "card_image", "thumbnail_image")),
+            new Reference("customers", "customer_id", List.of("image")),
+            new Reference("delivery_executives", "id", List.of("image")),
+            new Reference("orders", "id", List.of("prescription_url")),
+            new Reference("appointments", "id", List.of("prescription"))
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageHostingProvider imageHostingProvider;
+    // A pass sleeps between deletes to respect the host's rate limit, so it runs on its own thread
+    // instead of holding the scheduler thread every other @Scheduled job shares
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("media-reconciler").factory());
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${curevo.media.gc.enabled:true}")
+    private boolean enabled;
+
+    // Uploads younger than this are never touched: their transaction may still be running, or (executive
+    // registration) the URL may be parked in the cache until the OTP is confirmed
+    @Value("${curevo.media.gc.grace-period:24h}")
+    private Duration gracePeriod;
+
+    // How long a URL that was found referenced is left alone before it is checked again
+    @Value("${curevo.media.gc.recheck-interval:7d}")
+    private Duration recheckInterval;
+
+    @Value("${curevo.media.gc.batch-size:200}")
+    private int batchSize;
+
+    @Value("${curevo.media.gc.deletes-per-second:5}")
+    private double deletesPerSecond;
+
+    @Value("${curevo.media.gc.max-deletes-per-run:500}")
+    private int maxDeletesPerRun;
+
+    public MediaReconciler(JdbcTemplate jdbcTemplate, ImageHostingProvider imageHostingProvider) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.imageHostingProvider = imageHostingProvider;
+    }
+
+    // Called for every URL an upload returned; uploading the same URL again (deduplicated content) counts it twice
+    public void track(String url, String folder) {
+        try {
+            jdbcTemplate.update("INSERT INTO tracked_media (url, folder, upload_count, created_at, failed_deletes) " +
+                            "VALUES (?, ?, 1, ?, 0) " +
+                            "ON DUPLICATE KEY UPDATE upload_count = upload_count + 1, created_at = VALUES(created_at)",
+                    url, folder, Timestamp.from(Instant.now()));
+        } catch (RuntimeException e) {
+            // Tracking must never fail an upload; an untracked image is just one the reconciler cannot collect
+            System.err.println("Could not track uploaded media " + url + ": " + e.getMessage());
+        }
+    }
+
+    // Called after the host confirmed a delete
+    public void untrack(String url) {
+        try {
+            jdbcTemplate.update("UPDATE tracked_media SET upload_count = upload_count - 1 WHERE url = ?", url);
+            jdbcTemplate.update("DELETE FROM tracked_media WHERE url = ? AND upload_count <= 0", url);
+        } catch (RuntimeException e) {
+            System.err.println("Could not untrack deleted media " + url + ": " + e.getMessage());
+        }
+    }
+
+    // Hands the pass to the reconciler thread; a tick that arrives while the previous pass is still running is skipped
+    @Scheduled(fixedDelayString = "${curevo.media.gc.interval-ms:600000}",
+            initialDelayString = "${curevo.media.gc.initial-delay-ms:300000}")
+    public void reconcileScheduled() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                System.err.println("Media reconciliation failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    // One pass: pages through due rows until none are left or the delete budget is used up.
+    // Returns the number of images deleted from the host.
+    public synchronized int reconcile() {
+        long pauseNanos = deletesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / deletesPerSecond) : 0;
+        long nextDeleteAt = System.nanoTime();
+        int deleted = 0;
+        Instant startedAt = Instant.now();
+
+        pages:
+        while (deleted < maxDeletesPerRun) {
+            // Rows stamped during this pass are no longer due, so each query returns the next page
+            List<Candidate> page = loadDue(startedAt);
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<String, Owner> owners = findOwners(page);
+
+            for (Candidate candidate : page) {
+                Owner owner = owners.get(candidate.url());
+                if (owner != null) {
+                    jdbcTemplate.update("UPDATE tracked_media SET checked_at = ?, owner_table = ?, owner_id = ? WHERE id = ?",
+                            Timestamp.from(startedAt), owner.table(), owner.id(), candidate.id());
+                    continue;
+                }
+                if (deleted >= maxDeletesPerRun) {
+                    // Out of budget: leave the checkpoint where it is so the next run starts with this row
+                    break pages;
+                }
+
+                // Token pacing keeps the delete rate below what the image host allows
+                long wait = nextDeleteAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutting down; the remaining rows are still due on the next start
+                    break pages;
+                }
+                nextDeleteAt = Math.max(System.nanoTime(), nextDeleteAt) + pauseNanos;
+
+                if (deleteFromHost(candidate)) {
+                    jdbcTemplate.update("DELETE FROM tracked_media WHERE id = ?", candidate.id());
+                    deleted++;
+                } else {
+                    // Stamped just old enough to be due again on the next run, but not in this one
+                    jdbcTemplate.update("UPDATE tracked_media SET checked_at = ?, failed_deletes = failed_deletes + 1 " +
+                            "WHERE id = ?", Timestamp.from(startedAt.minus(recheckInterval)), candidate.id());
+                }
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("Media reconciler deleted " + deleted + " orphaned images");
+        }
+        return deleted;
+    }
+
+    private List<Candidate> loadDue(Instant startedAt) {
+        Timestamp uploadedBefore = Timestamp.from(startedAt.minus(gracePeriod));
+        Timestamp checkedBefore = Timestamp.from(startedAt.minus(recheckInterval));
+        // Never-checked rows (NULL) sort first, then the ones checked longest ago
+        return jdbcTemplate.query("SELECT id, url, upload_count FROM tracked_media " +
+                        "WHERE created_at < ? AND (checked_at IS NULL OR checked_at < ?) " +
+                        "ORDER BY checked_at, id LIMIT ?",
+                (rs, rowNum) -> new Candidate(rs.getLong("id"), rs.getString("url"), rs.getInt("upload_count")),
+                uploadedBefore, checkedBefore, batchSize);
+    }
+
+    // One UNION query per page: which of these URLs does any entity still point at, and which row is it
+    private Map<String, Owner> findOwners(List<Candidate> page) {
+        String placeholders = String.join(",", Collections.nCopies(page.size(), "?"));
+        List<String> selects = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        for (Reference reference : REFERENCES) {
+            for (String column : reference.urlColumns()) {
+                selects.add("SELECT " + column + " AS url, '" + reference.table() + "' AS owner_table, "
+                        + reference.idColumn() + " AS owner_id FROM " + reference.table()
+                        + " WHERE " + column + " IN (" + placeholders + ")");
+                page.forEach(candidate -> args.add(candidate.url()));
+            }
+        }
+        Map<String, Owner> owners = new HashMap<>();
+        jdbcTemplate.query(String.join(" UNION ALL ", selects), rs -> {
+            owners.putIfAbsent(rs.getString("url"), new Owner(rs.getString("owner_table"), rs.getLong("owner_id")));
+        }, args.toArray());
+        return owners;
+    }
+
+    // The local provider keeps deduplicated files until every upload of them has been deleted
+    private boolean deleteFromHost(Candidate candidate) {
+        try {
+            for (int i = 0; i < Math.max(1, candidate.uploadCount()); i++) {
+                imageHostingProvider.deleteImage(candidate.url());
+            }
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Media reconciler could not delete " + candidate.url() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private record Reference(String table, String idColumn, List<String> urlColumns) {
+    }
+
+    private record Candidate(long id, String url, int uploadCount) {
+    }
+
+    private record Owner(String table, long id) {
+    }
+}
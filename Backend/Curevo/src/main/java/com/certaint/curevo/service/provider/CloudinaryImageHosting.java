@@ -4,14 +4,15 @@ import com.certaint.curevo.interfaces.ImageHostingProvider;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 @Component
+@ConditionalOnProperty(name = "curevo.media.provider", havingValue = "cloudinary", matchIfMissing = true)
 public class CloudinaryImageHosting implements ImageHostingProvider {
 
     private final Cloudinary cloudinary;
@@ -28,9 +29,10 @@ public class CloudinaryImageHosting implements ImageHostingProvider {
 
 
     @Override
-    public String uploadImage(MultipartFile file, String folderName) {
+    public String uploadImage(Path file, String folderName) {
         try {
-            Map uploadResult = cloudinary.uploader().upload(file.getBytes(), ObjectUtils.asMap(
+            // A File is sent as a streamed multipart body rather than copied into a byte array first
+            Map uploadResult = cloudinary.uploader().upload(file.toFile(), ObjectUtils.asMap(
                     "folder", folderName
             ));
             return uploadResult.get("secure_url").toString();
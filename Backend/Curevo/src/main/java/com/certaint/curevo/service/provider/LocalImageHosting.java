@@ -0,0 +1,198 @@
+package com.certaint.curevo.service.provider;
+
+import com.certaint.curevo.interfaces.ImageHostingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Stores images on the local filesystem under their SHA-256, e.g. <root>/3f/a2/3fa2...e1.webp, and
+// serves them through MediaController. Identical uploads share one blob; a small <name>.refs file next
+// to a shared blob counts its extra references so deleting one copy does not break the others.
+// Meant for on-prem deployments and for benchmarks/tests that should not depend on Cloudinary.
+@Component
+@ConditionalOnProperty(name = "curevo.media.provider", havingValue = "local")
+public class LocalImageHosting implements ImageHostingProvider {
+
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final String publicBaseUrl;
+
+    // Reference counts are read-modify-write on disk, so writers of the same blob are serialised
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public LocalImageHosting(@Value("${curevo.media.local.root:./media-store}") String root,
+                             @Value("${curevo.media.local.public-base-url:/media}") String publicBaseUrl) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.publicBaseUrl = publicBaseUrl.endsWith("/") ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1) : publicBaseUrl;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        Files.createDirectories(this.root.resolve("tmp"));
+    }
+
+    // The folder name is not part of the address: the same bytes uploaded as a product and a doctor image are one blob
+    @Override
+    public String uploadImage(Path file, String folderName) {
+        try {
+            String name = sha256(file) + extensionOf(file);
+            Path blob = blobPath(name);
+            synchronized (lockFor(name)) {
+                if (Files.exists(blob)) {
+                    writeRefs(name, readRefs(name) + 1);
+                } else {
+                    store(file, blob);
+                }
+            }
+            return publicBaseUrl + "/" + name;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image " + file.getFileName(), e);
+        }
+    }
+
+    @Override
+    public String deleteImage(String imageUrl) {
+        String name = nameOf(imageUrl);
+        if (name == null) {
+            return "not found";
+        }
+        try {
+            synchronized (lockFor(name)) {
+                Path blob = blobPath(name);
+                if (!Files.exists(blob)) {
+                    return "not found";
+                }
+                int refs = readRefs(name);
+                if (refs > 1) {
+                    writeRefs(name, refs - 1);
+                    return "ok";
+                }
+                Files.deleteIfExists(refsPath(name));
+                Files.delete(blob);
+                return "ok";
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete image " + imageUrl, e);
+        }
+    }
+
+    // The stored file for a public blob name, if it exists; anything that is not a well-formed name is rejected
+    public Optional<Path> resolve(String name) {
+        if (name == null || !BLOB_NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        Path blob = blobPath(name);
+        return Files.isRegularFile(blob) ? Optional.of(blob) : Optional.empty();
+    }
+
+    // Content-addressed, so the hash doubles as a strong ETag
+    public static String hashOf(String name) {
+        int dot = name.indexOf('.');
+        return dot >= 0 ? name.substring(0, dot) : name;
+    }
+
+    private void store(Path source, Path blob) throws IOException {
+        Files.createDirectories(blob.getParent());
+        // Copy next to the store first, then rename, so readers never see a partially written blob
+        Path staging = Files.createTempFile(root.resolve("tmp"), "upload-", ".part");
+        try {
+            Files.copy(source, staging, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(staging, blob, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, blob);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // Written concurrently by another node sharing the directory; the content is identical
+            writeRefs(blob.getFileName().toString(), readRefs(blob.getFileName().toString()) + 1);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    // Sharded two levels deep on the hash so no directory grows past 65536 entries per level
+    private Path blobPath(String name) {
+        return root.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    private Path refsPath(String name) {
+        Path blob = blobPath(name);
+        return blob.resolveSibling(blob.getFileName() + ".refs");
+    }
+
+    // A blob without a .refs file has exactly one reference
+    private int readRefs(String name) throws IOException {
+        Path refs = refsPath(name);
+        if (!Files.exists(refs)) {
+            return 1;
+        }
+        return Integer.parseInt(Files.readString(refs, StandardCharsets.US_ASCII).trim());
+    }
+
+    private void writeRefs(String name, int refs) throws IOException {
+        Path refsFile = refsPath(name);
+        if (refs <= 1) {
+            Files.deleteIfExists(refsFile);
+            return;
+        }
+        Path staging = Files.createTempFile(root.resolve("tmp"), "refs-", ".part");
+        Files.writeString(staging, Integer.toString(refs), StandardCharsets.US_ASCII);
+        Files.move(staging, refsFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Object lockFor(String name) {
+        return locks[Math.floorMod(name.hashCode(), LOCK_STRIPES)];
+    }
+
+    private String nameOf(String imageUrl) {
+        if (imageUrl == null) {
+            return null;
+        }
+        String name = imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+        return BLOB_NAME.matcher(name).matches() ? name : null;
+    }
+
+    private static String extensionOf(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot) : "";
+        if (".jpeg".equals(extension)) {
+            extension = ".jpg";
+        }
+        return EXTENSION.matcher(extension).matches() && !".tmp".equals(extension) ? extension : "";
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,112 @@
+package com.certaint.curevo.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal streaming RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+// Only the record being parsed is held in memory, so arbitrarily large files can be read row by row.
+public final class CsvReader {
+
+    private final Reader reader;
+    private int line = 1;
+    private int recordLine;
+    private int pending = -2;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Line on which the record most recently returned by readRecord() started
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    // Next record, or null at end of input. Blank lines are skipped.
+    public List<String> readRecord() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\r' || c == '\n') {
+                consumeLineBreak(c);
+                continue;
+            }
+            recordLine = line;
+            unread(c);
+            return parseRecord();
+        }
+    }
+
+    private List<String> parseRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(next);
+                    }
+                } else {
+                    if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                fields.add(field.toString());
+                if (c != -1) {
+                    consumeLineBreak(c);
+                }
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private void consumeLineBreak(int c) throws IOException {
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n') {
+                unread(next);
+            }
+        }
+        line++;
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        unread(c);
+        return c;
+    }
+
+    private void unread(int c) {
+        pending = c;
+    }
+}
@@ -0,0 +1,38 @@
+package com.certaint.curevo.util;
+
+import com.certaint.curevo.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque continuation tokens for keyset pagination: the (sortKey, id) of the last row a client has seen,
+// base64url encoded so clients treat it as a black box and never build one themselves.
+public final class CursorCodec {
+
+    private static final char SEPARATOR = '|';
+
+    public record Cursor(String sortKey, long id) {
+    }
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String sortKey, long id) {
+        String raw = (sortKey != null ? sortKey : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The sort key may itself contain the separator, the ID never does
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid cursor: " + token);
+            }
+            return new Cursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.certaint.curevo.util;
+
+import java.util.Locale;
+
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    // Length of one degree of latitude in kilometers (constant everywhere on the sphere)
+    public static final double KM_PER_DEGREE_LAT = Math.toRadians(1) * EARTH_RADIUS_KM;
+
+    // Half the Earth's circumference: no two points are further apart than this
+    public static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+    private GeoUtils() {
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        return haversineKm(lat1, lon1, Math.cos(Math.toRadians(lat1)), lat2, lon2, Math.cos(Math.toRadians(lat2)));
+    }
+
+    // Same as above, but lets callers reuse cos(lat) values they have already computed
+    public static double haversineKm(double lat1, double lon1, double cosLat1,
+                                     double lat2, double lon2, double cosLat2) {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    // Half-width in degrees of longitude of a box that contains every point within radiusKm of lat
+    public static double longitudeDelta(double lat, double radiusKm) {
+        // Use the band edge closest to the pole, where a degree of longitude is shortest
+        double edgeLat = Math.min(90.0, Math.abs(lat) + radiusKm / KM_PER_DEGREE_LAT);
+        double cosLat = Math.cos(Math.toRadians(edgeLat));
+        if (cosLat < 1e-6) {
+            return 180.0;
+        }
+        return Math.min(180.0, radiusKm / (KM_PER_DEGREE_LAT * cosLat));
+    }
+
+    // WKT polygon (long-lat axis order) of the box around a search circle, used as the MBRContains prefilter.
+    // A box that crosses the antimeridian is wrapped and split into a MULTIPOLYGON of its two halves, so
+    // places just across it are still found (as they are by the in-memory StoreGeoIndex).
+    public static String boundingBoxWkt(double lat, double lon, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double lonDelta = longitudeDelta(lat, radiusKm);
+        double minLat = Math.max(-90.0, lat - latDelta);
+        double maxLat = Math.min(90.0, lat + latDelta);
+        if (lonDelta >= 180.0) {
+            return "POLYGON(" + ring(-180.0, minLat, 180.0, maxLat) + ")";
+        }
+        double minLon = lon - lonDelta;
+        double maxLon = lon + lonDelta;
+        if (minLon < -180.0) {
+            return "MULTIPOLYGON((" + ring(minLon + 360.0, minLat, 180.0, maxLat) + "), ("
+                    + ring(-180.0, minLat, maxLon, maxLat) + "))";
+        }
+        if (maxLon > 180.0) {
+            return "MULTIPOLYGON((" + ring(minLon, minLat, 180.0, maxLat) + "), ("
+                    + ring(-180.0, minLat, maxLon - 360.0, maxLat) + "))";
+        }
+        return "POLYGON(" + ring(minLon, minLat, maxLon, maxLat) + ")";
+    }
+
+    private static String ring(double minLon, double minLat, double maxLon, double maxLat) {
+        return String.format(Locale.ROOT, "(%1$f %2$f, %3$f %2$f, %3$f %4$f, %1$f %4$f, %1$f %2$f)",
+                minLon, minLat, maxLon, maxLat);
+    }
+}
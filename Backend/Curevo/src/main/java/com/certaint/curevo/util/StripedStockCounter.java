@@ -0,0 +1,104 @@
+package com.certaint.curevo.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Stock level split over several independently CAS-updated stripes, so concurrent reservations on
+// one SKU mostly touch different cache lines. A stripe never goes below zero; when no single stripe
+// can cover a request, the slow path drains every stripe under the monitor, decides, and spreads the
+// remainder back. The total therefore never goes negative, whatever the interleaving.
+public final class StripedStockCounter {
+
+    // Longs between two stripes, so neighbouring stripes do not share a 64-byte cache line
+    private static final int PADDING = 8;
+
+    private final int stripeCount;
+    private final AtomicLongArray cells;
+    private volatile boolean retired;
+
+    public StripedStockCounter(int stripeCount) {
+        this.stripeCount = Math.max(1, stripeCount);
+        this.cells = new AtomicLongArray(this.stripeCount * PADDING);
+    }
+
+    public boolean tryTake(int quantity) {
+        if (retired) {
+            return false;
+        }
+        int start = home();
+        for (int i = 0; i < stripeCount; i++) {
+            int cell = ((start + i) % stripeCount) * PADDING;
+            long current = cells.get(cell);
+            while (current >= quantity) {
+                if (cells.compareAndSet(cell, current, current - quantity)) {
+                    return true;
+                }
+                current = cells.get(cell);
+            }
+        }
+        return takeSlow(quantity);
+    }
+
+    private synchronized boolean takeSlow(int quantity) {
+        if (retired) {
+            return false;
+        }
+        long total = drain();
+        boolean taken = total >= quantity;
+        spread(taken ? total - quantity : total);
+        return taken;
+    }
+
+    public void release(int quantity) {
+        if (!retired) {
+            cells.getAndAdd(home() * PADDING, quantity);
+        }
+    }
+
+    // Replaces the level with the supplier's value. Every stripe is emptied first and the monitor is held
+    // while the supplier runs, so no reservation can succeed until the new level is in place.
+    public synchronized void refill(LongSupplier level) {
+        if (retired) {
+            return;
+        }
+        drain();
+        spread(Math.max(0, level.getAsLong()));
+    }
+
+    // Stops all further reservations; the counter cannot be reused afterwards
+    public synchronized void retire() {
+        retired = true;
+        drain();
+    }
+
+    // Approximate while reservations are running
+    public long available() {
+        long total = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    // Callers must hold the monitor
+    private long drain() {
+        long total = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        return total;
+    }
+
+    // Callers must hold the monitor. Adds rather than sets so concurrent releases are kept.
+    private void spread(long total) {
+        long share = total / stripeCount;
+        long extra = total % stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            cells.getAndAdd(i * PADDING, share + (i < extra ? 1 : 0));
+        }
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().threadId() % stripeCount);
+    }
+}
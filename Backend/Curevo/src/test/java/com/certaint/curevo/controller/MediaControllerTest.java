@@ -0,0 +1,79 @@
+package com.certaint.curevo.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MediaControllerTest {
+
+    private static final long[] WHOLE_FILE = new long[0];
+    private static final String ETAG = "\"" + "ab".repeat(32) + "\"";
+
+    @Test
+    void explicitRangeIsClampedToTheFile() {
+        assertArrayEquals(new long[]{0, 99}, MediaController.parseRange("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{500, 999}, MediaController.parseRange("bytes=500-5000", 1000));
+        assertArrayEquals(new long[]{999, 999}, MediaController.parseRange("bytes=999-999", 1000));
+    }
+
+    @Test
+    void openEndedRangeRunsToTheEnd() {
+        assertArrayEquals(new long[]{200, 999}, MediaController.parseRange("bytes=200-", 1000));
+    }
+
+    @Test
+    void suffixRangeTakesTheLastBytes() {
+        assertArrayEquals(new long[]{900, 999}, MediaController.parseRange("bytes=-100", 1000));
+        // A suffix longer than the file is the whole file
+        assertArrayEquals(new long[]{0, 999}, MediaController.parseRange("bytes=-5000", 1000));
+        assertNull(MediaController.parseRange("bytes=-0", 1000));
+    }
+
+    @Test
+    void rangeStartingPastTheEndIsUnsatisfiable() {
+        assertNull(MediaController.parseRange("bytes=1000-", 1000));
+        assertNull(MediaController.parseRange("bytes=1500-2000", 1000));
+        assertNull(MediaController.parseRange("bytes=-10", 0));
+    }
+
+    @Test
+    void malformedRangeFallsBackToTheWholeFile() {
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("items=0-10", 1000));
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("bytes=10", 1000));
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("bytes=a-b", 1000));
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("bytes=-", 1000));
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("bytes=50-10", 1000));
+    }
+
+    @Test
+    void multiRangeFallsBackToTheWholeFile() {
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("bytes=0-10,20-30", 1000));
+        assertArrayEquals(WHOLE_FILE, MediaController.parseRange("bytes=0-10, -5", 1000));
+    }
+
+    @Test
+    void ifRangeMatchingTheEtagHonoursTheRange() {
+        assertArrayEquals(new long[]{0, 9}, MediaController.requestedRange("bytes=0-9", ETAG, ETAG, 100));
+        assertArrayEquals(new long[]{0, 9}, MediaController.requestedRange("bytes=0-9", null, ETAG, 100));
+        assertNull(MediaController.requestedRange("bytes=200-", ETAG, ETAG, 100));
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFile() {
+        String stale = "\"" + "cd".repeat(32) + "\"";
+
+        assertArrayEquals(WHOLE_FILE, MediaController.requestedRange("bytes=0-9", stale, ETAG, 100));
+        // A date or weak validator never matches a strong ETag
+        assertArrayEquals(WHOLE_FILE, MediaController.requestedRange("bytes=0-9", "Wed, 21 Oct 2015 07:28:00 GMT", ETAG, 100));
+        assertArrayEquals(WHOLE_FILE, MediaController.requestedRange("bytes=0-9", "W/" + ETAG, ETAG, 100));
+        // Even an unsatisfiable range is ignored when the validator is stale
+        assertArrayEquals(WHOLE_FILE, MediaController.requestedRange("bytes=200-", stale, ETAG, 100));
+    }
+
+    @Test
+    void noRangeHeaderSendsTheWholeFile() {
+        assertArrayEquals(WHOLE_FILE, MediaController.requestedRange(null, null, ETAG, 100));
+        assertArrayEquals(WHOLE_FILE, MediaController.requestedRange(null, ETAG, ETAG, 100));
+    }
+}
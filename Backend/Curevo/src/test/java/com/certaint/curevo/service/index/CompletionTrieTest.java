@@ -0,0 +1,158 @@
+package com.certaint.curevo.service.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompletionTrieTest {
+
+    @Test
+    void returnsBestScoredMatchesFirst() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.put(1, "Paracetamol 500mg", 10L);
+        trie.put(2, "Pantoprazole", 30L);
+        trie.put(3, "Paracetamol Syrup", 20L);
+        trie.put(4, "Ibuprofen", 99L);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(trie.topK("pa", 10)));
+        assertEquals(List.of(3L), ids(trie.topK("PARA", 1)));
+        assertTrue(trie.topK("xyz", 5).isEmpty());
+    }
+
+    @Test
+    void matchesLaterWordsAndIgnoresPunctuation() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.put(1, "Vitamin-C Tablets", 5L);
+
+        assertEquals(List.of(1L), ids(trie.topK("c tab", 5)));
+        assertEquals(List.of(1L), ids(trie.topK("vitamin c", 5)));
+        assertEquals(List.of(1L), ids(trie.topK("tablets", 5)));
+    }
+
+    @Test
+    void prefixEndingInsideACompressedEdgeStillMatches() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.put(1, "amoxicillin", 1L);
+        trie.put(2, "amlodipine", 2L);
+
+        assertEquals(List.of(1L), ids(trie.topK("amox", 5)));
+        assertEquals(List.of(2L, 1L), ids(trie.topK("am", 5)));
+        assertTrue(trie.topK("amoxy", 5).isEmpty());
+    }
+
+    @Test
+    void renameKeepsScoreAndRemoveForgetsEntry() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.put(1, "Cetirizine", 7L);
+        trie.put(1, "Levocetirizine", null);
+
+        assertTrue(trie.topK("cet", 5).isEmpty());
+        assertEquals(7L, trie.topK("levo", 5).get(0).score());
+
+        trie.remove(1);
+        assertTrue(trie.topK("levo", 5).isEmpty());
+        assertEquals(0, trie.size());
+    }
+
+    @Test
+    void addScoreReordersResults() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.put(1, "Dolo 650", 1L);
+        trie.put(2, "Dolonex", 2L);
+        trie.addScore(1, 5);
+
+        assertEquals(List.of(1L, 2L), ids(trie.topK("dolo", 5)));
+    }
+
+    @Test
+    void rebuildReplacesTheWholeContent() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.put(1, "Old entry", 1L);
+        trie.rebuild(List.of(new CompletionTrie.Item(2, "New entry", 3L), new CompletionTrie.Item(3, "Newer", 4L)));
+
+        assertTrue(trie.topK("old", 5).isEmpty());
+        assertEquals(List.of(3L, 2L), ids(trie.topK("new", 5)));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    void agreesWithBruteForceUnderRandomEdits() {
+        Random random = new Random(11);
+        String[] syllables = {"a", "am", "ol", "pra", "zole", "cin", "in", "ta", "b", " "};
+        CompletionTrie trie = new CompletionTrie();
+        Map<Long, String> texts = new HashMap<>();
+        Map<Long, Long> scores = new HashMap<>();
+
+        for (int step = 0; step < 3000; step++) {
+            long id = random.nextInt(60);
+            int action = random.nextInt(10);
+            if (action < 6) {
+                StringBuilder text = new StringBuilder();
+                for (int i = 1 + random.nextInt(5); i > 0; i--) {
+                    text.append(syllables[random.nextInt(syllables.length)]);
+                }
+                long score = random.nextInt(100);
+                trie.put(id, text.toString(), score);
+                if (text.toString().isBlank()) {
+                    texts.remove(id);
+                    scores.remove(id);
+                } else {
+                    texts.put(id, text.toString());
+                    scores.put(id, score);
+                }
+            } else if (action < 8) {
+                trie.remove(id);
+                texts.remove(id);
+                scores.remove(id);
+            } else if (texts.containsKey(id)) {
+                trie.addScore(id, 10);
+                scores.merge(id, 10L, Long::sum);
+            }
+
+            String prefix = syllables[random.nextInt(syllables.length - 1)]
+                    + (random.nextBoolean() ? syllables[random.nextInt(syllables.length - 1)] : "");
+            List<CompletionTrie.Completion> actual = trie.topK(prefix, 5);
+            List<Long> expectedScores = bruteForce(texts, scores, prefix, 5);
+            assertEquals(expectedScores, actual.stream().map(CompletionTrie.Completion::score).toList());
+            for (CompletionTrie.Completion completion : actual) {
+                assertTrue(keysOf(texts.get(completion.id())).stream().anyMatch(key -> key.startsWith(prefix)));
+            }
+        }
+        assertEquals(texts.size(), trie.size());
+    }
+
+    private static List<Long> bruteForce(Map<Long, String> texts, Map<Long, Long> scores, String prefix, int k) {
+        List<Long> matching = new ArrayList<>();
+        texts.forEach((id, text) -> {
+            if (keysOf(text).stream().anyMatch(key -> key.startsWith(prefix))) {
+                matching.add(scores.get(id));
+            }
+        });
+        matching.sort(Comparator.reverseOrder());
+        return matching.subList(0, Math.min(k, matching.size()));
+    }
+
+    private static List<String> keysOf(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        List<String> keys = new ArrayList<>();
+        for (int start = 0; start >= 0; ) {
+            keys.add(normalized.substring(start));
+            int space = normalized.indexOf(' ', start);
+            start = space >= 0 ? space + 1 : -1;
+        }
+        return keys;
+    }
+
+    private static List<Long> ids(List<CompletionTrie.Completion> completions) {
+        return completions.stream().map(CompletionTrie.Completion::id).toList();
+    }
+}
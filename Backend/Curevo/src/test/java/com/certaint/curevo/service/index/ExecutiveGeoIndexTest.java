@@ -0,0 +1,107 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutiveGeoIndexTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Test
+    void ignoresFixesOlderThanTheOneHeld() {
+        ExecutiveGeoIndex index = new ExecutiveGeoIndex();
+
+        assertTrue(index.update(1, 12.97, 77.59, NOW));
+        assertFalse(index.update(1, 13.50, 78.00, NOW.minusSeconds(5)));
+        assertEquals(12.97, index.get(1).orElseThrow().lat(), 0.0);
+        assertTrue(index.update(1, 13.50, 78.00, NOW.plusSeconds(5)));
+        assertEquals(13.50, index.get(1).orElseThrow().lat(), 0.0);
+    }
+
+    @Test
+    void movedAndRemovedExecutivesAreOnlyFoundWhereTheyAre() {
+        ExecutiveGeoIndex index = new ExecutiveGeoIndex();
+        index.update(1, 12.97, 77.59, NOW);
+        index.update(1, 19.07, 72.87, NOW.plusSeconds(1));
+
+        assertTrue(index.best(12.97, 77.59, 10, NOW, id -> true, id -> 0).isEmpty());
+        assertEquals(1L, index.best(19.07, 72.87, 10, NOW, id -> true, id -> 0).orElseThrow().executiveId());
+
+        index.remove(1);
+        assertTrue(index.best(19.07, 72.87, 10, NOW, id -> true, id -> 0).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void skipsStaleAndIneligibleExecutives() {
+        ExecutiveGeoIndex index = new ExecutiveGeoIndex();
+        index.update(1, 12.970, 77.590, NOW.minusSeconds(600));
+        index.update(2, 12.971, 77.591, NOW);
+        index.update(3, 12.980, 77.600, NOW);
+
+        Optional<ExecutiveGeoIndex.Match> match = index.best(12.97, 77.59, 5, NOW.minusSeconds(60), id -> id != 2, id -> 0);
+
+        assertEquals(3L, match.orElseThrow().executiveId());
+    }
+
+    @Test
+    void extraCostCanOutweighDistance() {
+        ExecutiveGeoIndex index = new ExecutiveGeoIndex();
+        index.update(1, 12.970, 77.590, NOW);
+        index.update(2, 12.990, 77.610, NOW);
+
+        ExecutiveGeoIndex.Match match = index.best(12.97, 77.59, 10, NOW, id -> true, id -> id == 1 ? 5.0 : 0.0)
+                .orElseThrow();
+
+        assertEquals(2L, match.executiveId());
+        assertEquals(match.distanceKm(), match.score(), 1e-9);
+    }
+
+    @Test
+    void ringSearchAgreesWithBruteForce() {
+        Random random = new Random(7);
+        ExecutiveGeoIndex index = new ExecutiveGeoIndex();
+        int executives = 400;
+        double[][] points = new double[executives][];
+        for (int id = 0; id < executives; id++) {
+            points[id] = new double[]{12.5 + random.nextDouble(), 77.0 + random.nextDouble()};
+            index.update(id, points[id][0], points[id][1], NOW);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            double lat = 12.4 + random.nextDouble() * 1.2;
+            double lon = 76.9 + random.nextDouble() * 1.2;
+            double radius = 1 + random.nextDouble() * 30;
+
+            long expectedId = -1;
+            double expectedScore = Double.MAX_VALUE;
+            for (int id = 0; id < executives; id++) {
+                double distance = GeoUtils.haversineKm(lat, lon, points[id][0], points[id][1]);
+                double score = distance + load(id);
+                if (distance <= radius && score < expectedScore) {
+                    expectedId = id;
+                    expectedScore = score;
+                }
+            }
+
+            Optional<ExecutiveGeoIndex.Match> match = index.best(lat, lon, radius, NOW, id -> true, ExecutiveGeoIndexTest::load);
+            if (expectedId < 0) {
+                assertTrue(match.isEmpty());
+            } else {
+                assertEquals(expectedScore, match.orElseThrow().score(), 1e-9);
+            }
+        }
+    }
+
+    private static double load(long id) {
+        return (id % 4) * 1.5;
+    }
+}
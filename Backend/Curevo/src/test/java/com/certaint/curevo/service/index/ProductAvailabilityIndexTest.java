@@ -0,0 +1,136 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.entity.Store;
+import com.certaint.curevo.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductAvailabilityIndexTest {
+
+    private static Store store(long id, double lat, double lon) {
+        Store store = new Store();
+        store.setStoreId(id);
+        store.setLatitude(lat);
+        store.setLongitude(lon);
+        return store;
+    }
+
+    private static Set<Integer> bits(RoaringBitmap bitmap) {
+        Set<Integer> bits = new TreeSet<>();
+        Arrays.stream(bitmap.toArray()).forEach(bits::add);
+        return bits;
+    }
+
+    @Test
+    void findsProductsOnlyInStoresInsideTheRadius() {
+        ProductAvailabilityIndex index = new ProductAvailabilityIndex();
+        index.rebuild(List.of(store(1, 12.97, 77.59), store(2, 13.03, 77.60), store(3, 19.07, 72.87)),
+                List.of(new ProductAvailabilityIndex.InStockEntry(1L, 10L),
+                        new ProductAvailabilityIndex.InStockEntry(2L, 20L),
+                        new ProductAvailabilityIndex.InStockEntry(3L, 30L)));
+
+        assertEquals(Set.of(10), bits(index.inStockWithin(12.97, 77.59, 2)));
+        assertEquals(Set.of(10, 20), bits(index.inStockWithin(12.97, 77.59, 10)));
+        assertEquals(Set.of(10, 20, 30), bits(index.inStockAnywhere()));
+    }
+
+    @Test
+    void stockCrossingZeroFlipsTheBit() {
+        ProductAvailabilityIndex index = new ProductAvailabilityIndex();
+        index.rebuild(List.of(store(1, 12.97, 77.59), store(2, 12.971, 77.591)), List.of());
+
+        index.setStock(1L, 5L, 3);
+        index.setStock(2L, 5L, 1);
+        assertEquals(Set.of(5), bits(index.inStockWithin(12.97, 77.59, 50)));
+
+        // Still carried by store 2, so the cell keeps the product
+        index.setStock(1L, 5L, 0);
+        assertEquals(Set.of(5), bits(index.inStockWithin(12.97, 77.59, 50)));
+
+        index.setStock(2L, 5L, 0);
+        assertTrue(index.inStockWithin(12.97, 77.59, 50).isEmpty());
+    }
+
+    @Test
+    void removedProductsAndStoresDisappear() {
+        ProductAvailabilityIndex index = new ProductAvailabilityIndex();
+        index.rebuild(List.of(store(1, 12.97, 77.59), store(2, 12.971, 77.591)),
+                List.of(new ProductAvailabilityIndex.InStockEntry(1L, 7L),
+                        new ProductAvailabilityIndex.InStockEntry(2L, 7L),
+                        new ProductAvailabilityIndex.InStockEntry(2L, 8L)));
+
+        index.removeProduct(7L);
+        assertEquals(Set.of(8), bits(index.inStockWithin(12.97, 77.59, 50)));
+
+        index.removeStore(2L);
+        assertTrue(index.inStockWithin(12.97, 77.59, 50).isEmpty());
+    }
+
+    @Test
+    void movedStoreIsFoundAtItsNewLocation() {
+        ProductAvailabilityIndex index = new ProductAvailabilityIndex();
+        index.rebuild(List.of(store(1, 12.97, 77.59)), List.of(new ProductAvailabilityIndex.InStockEntry(1L, 4L)));
+
+        index.upsertStore(store(1, 28.61, 77.21));
+
+        assertTrue(index.inStockWithin(12.97, 77.59, 50).isEmpty());
+        assertEquals(Set.of(4), bits(index.inStockWithin(28.61, 77.21, 5)));
+    }
+
+    @Test
+    void searchesAcrossTheAntimeridian() {
+        ProductAvailabilityIndex index = new ProductAvailabilityIndex();
+        index.rebuild(List.of(store(1, -17.0, 179.99), store(2, -17.0, -179.99)),
+                List.of(new ProductAvailabilityIndex.InStockEntry(1L, 1L),
+                        new ProductAvailabilityIndex.InStockEntry(2L, 2L)));
+
+        assertEquals(Set.of(1, 2), bits(index.inStockWithin(-17.0, 179.999, 10)));
+    }
+
+    @Test
+    void agreesWithBruteForce() {
+        Random random = new Random(3);
+        List<Store> stores = new ArrayList<>();
+        List<ProductAvailabilityIndex.InStockEntry> inStock = new ArrayList<>();
+        Map<Long, Set<Integer>> products = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            stores.add(store(id, 12.0 + random.nextDouble() * 2, 77.0 + random.nextDouble() * 2));
+            Set<Integer> carried = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                int productId = 1 + random.nextInt(200);
+                carried.add(productId);
+                inStock.add(new ProductAvailabilityIndex.InStockEntry(id, (long) productId));
+            }
+            products.put(id, carried);
+        }
+        ProductAvailabilityIndex index = new ProductAvailabilityIndex();
+        index.rebuild(stores, inStock);
+
+        for (int query = 0; query < 100; query++) {
+            double lat = 11.8 + random.nextDouble() * 2.4;
+            double lon = 76.8 + random.nextDouble() * 2.4;
+            double radius = random.nextDouble() * (query < 90 ? 20 : 400);
+
+            Set<Integer> expected = new TreeSet<>();
+            for (Store store : stores) {
+                if (GeoUtils.haversineKm(lat, lon, store.getLatitude(), store.getLongitude()) <= radius) {
+                    expected.addAll(products.get(store.getStoreId()));
+                }
+            }
+            assertEquals(expected, bits(index.inStockWithin(lat, lon, radius)));
+        }
+    }
+}
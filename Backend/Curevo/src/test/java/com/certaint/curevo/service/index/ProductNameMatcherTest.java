@@ -0,0 +1,72 @@
+package com.certaint.curevo.service.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductNameMatcherTest {
+
+    private static ProductNameMatcher matcherOf(String... names) {
+        ProductNameMatcher matcher = new ProductNameMatcher();
+        long id = 1;
+        for (String name : names) {
+            matcher.upsert(new ProductDocument(id++, name, null, null));
+        }
+        return matcher;
+    }
+
+    @Test
+    void findsWordsWithinTwoEdits() {
+        ProductNameMatcher matcher = matcherOf("Paracetamol", "Pantoprazole", "Ibuprofen");
+
+        assertEquals("paracetamol", matcher.lookup("paracetmol", 5).get(0).text());
+        assertEquals("ibuprofen", matcher.lookup("ibuprfoen", 5).get(0).text());
+        assertEquals(1, matcher.lookup("ibuprfoen", 5).get(0).distance());
+        assertTrue(matcher.lookup("omeprazole", 5).isEmpty());
+    }
+
+    @Test
+    void knownWordsAreReturnedAsExactMatches() {
+        ProductNameMatcher matcher = matcherOf("Cough Syrup");
+
+        List<ProductNameMatcher.Suggestion> suggestions = matcher.lookup("Syrup", 5);
+
+        assertEquals(List.of(new ProductNameMatcher.Suggestion("syrup", 0, 1)), suggestions);
+    }
+
+    @Test
+    void moreCommonWordsWinTies() {
+        ProductNameMatcher matcher = matcherOf("Zinc Tablets", "Iron Tablets", "Zinc Cream", "Tablet Cutter");
+
+        assertEquals("tablets", matcher.lookup("tablats", 5).get(0).text());
+    }
+
+    @Test
+    void correctsOnlyTheMisspelledWordsOfAQuery() {
+        ProductNameMatcher matcher = matcherOf("Vitamin C Tablets", "Cough Syrup");
+
+        assertEquals(Optional.of("vitamin c tablets"), matcher.correct("vitamn c tablest"));
+        assertEquals(Optional.empty(), matcher.correct("cough syrup"));
+    }
+
+    @Test
+    void removedProductsStopContributingWords() {
+        ProductNameMatcher matcher = matcherOf("Amoxicillin");
+
+        matcher.remove(1L);
+
+        assertTrue(matcher.lookup("amoxicilin", 5).isEmpty());
+    }
+
+    @Test
+    void editDistanceCountsTranspositionsAsOneEdit() {
+        assertEquals(1, ProductNameMatcher.editDistance("ab", "ba", 2));
+        assertEquals(2, ProductNameMatcher.editDistance("kitten", "sittin", 2));
+        // Stops early once the distance is known to exceed the limit
+        assertEquals(3, ProductNameMatcher.editDistance("abcdef", "uvwxyz", 2));
+    }
+}
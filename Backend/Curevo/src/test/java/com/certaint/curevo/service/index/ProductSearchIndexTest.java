@@ -0,0 +1,95 @@
+package com.certaint.curevo.service.index;
+
+import com.certaint.curevo.enums.ProductCategory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private static ProductSearchIndex indexOf(ProductDocument... products) {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(products));
+        return index;
+    }
+
+    @Test
+    void matchesWordPrefixesInAnyField() {
+        ProductSearchIndex index = indexOf(
+                new ProductDocument(1L, "Paracetamol 500mg", "Fever and pain relief", ProductCategory.MEDICINES),
+                new ProductDocument(2L, "Baby Lotion", "Gentle moisturiser", ProductCategory.BABY_CARE));
+
+        assertEquals(List.of(1L), index.search("parac"));
+        assertEquals(List.of(2L), index.search("moist"));
+        assertEquals(List.of(2L), index.search("baby care"));
+        assertTrue(index.search("aspirin").isEmpty());
+    }
+
+    @Test
+    void everyQueryWordMustMatch() {
+        ProductSearchIndex index = indexOf(
+                new ProductDocument(1L, "Vitamin C", null, ProductCategory.NUTRITION_AND_SUPPLEMENTS),
+                new ProductDocument(2L, "Vitamin D3", null, ProductCategory.NUTRITION_AND_SUPPLEMENTS));
+
+        assertEquals(List.of(1L), index.search("vitamin c"));
+        assertEquals(List.of(2L), index.search("vit d"));
+        assertTrue(index.search("vitamin k").isEmpty());
+    }
+
+    @Test
+    void nameHitsOutrankDescriptionHits() {
+        ProductSearchIndex index = indexOf(
+                new ProductDocument(1L, "Cough Syrup", "Soothes throat", ProductCategory.MEDICINES),
+                new ProductDocument(2L, "Honey Lozenges", "Relief for cough and sore throat", ProductCategory.MEDICINES));
+
+        assertEquals(List.of(1L, 2L), index.search("cough"));
+    }
+
+    @Test
+    void exactWordOutranksLongerWordWithTheSamePrefix() {
+        ProductSearchIndex index = indexOf(
+                new ProductDocument(1L, "Paracetamolum", null, null),
+                new ProductDocument(2L, "Paracetamol", null, null));
+
+        assertEquals(List.of(2L, 1L), index.search("paracetamol"));
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        // "zinc" appears in one product, "tablets" in all of them: the zinc product wins on idf
+        ProductSearchIndex index = indexOf(
+                new ProductDocument(1L, "Calcium Tablets", null, null),
+                new ProductDocument(2L, "Iron Tablets", null, null),
+                new ProductDocument(3L, "Zinc Tablets", "tablets tablets", null));
+
+        assertEquals(List.of(3L), index.search("zinc tablets", 1));
+        assertEquals(3, index.search("tablets").size());
+    }
+
+    @Test
+    void limitCutsTheRankedList() {
+        ProductSearchIndex index = indexOf(
+                new ProductDocument(1L, "Soap", null, null),
+                new ProductDocument(2L, "Soap Bar", null, null),
+                new ProductDocument(3L, "Soap Liquid", null, null));
+
+        assertEquals(2, index.search("soap", 2).size());
+        assertTrue(index.search("soap", 0).isEmpty());
+    }
+
+    @Test
+    void upsertAndRemoveKeepTheIndexCurrent() {
+        ProductSearchIndex index = indexOf(new ProductDocument(1L, "Cetirizine", null, null));
+
+        index.upsert(new ProductDocument(1L, "Levocetirizine", null, null));
+        assertTrue(index.search("cetir").isEmpty());
+        assertEquals(List.of(1L), index.search("levo"));
+
+        index.remove(1L);
+        assertTrue(index.search("levo").isEmpty());
+        assertEquals(0, index.size());
+    }
+}
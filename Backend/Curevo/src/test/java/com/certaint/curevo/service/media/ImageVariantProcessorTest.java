@@ -0,0 +1,147 @@
+package com.certaint.curevo.service.media;
+
+import com.certaint.curevo.enums.ImageVariant;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageVariantProcessorTest {
+
+    private static ImageVariantProcessor processor() {
+        ImageVariantProcessor processor = new ImageVariantProcessor();
+        ReflectionTestUtils.setField(processor, "preferredFormat", "jpeg");
+        ReflectionTestUtils.setField(processor, "quality", 0.9f);
+        return processor;
+    }
+
+    @Test
+    void writesEveryVariantWithinItsMaxEdge() throws IOException {
+        Path source = write(halves(3000, 1500), "png");
+        Map<ImageVariant, Path> files = processor().process(source, EnumSet.allOf(ImageVariant.class));
+        try {
+            assertSize(files.get(ImageVariant.FULL), 2048, 1024);
+            assertSize(files.get(ImageVariant.CARD), 600, 300);
+            assertSize(files.get(ImageVariant.THUMBNAIL), 200, 100);
+        } finally {
+            cleanUp(source, files);
+        }
+    }
+
+    @Test
+    void neverUpscalesSmallImages() throws IOException {
+        Path source = write(halves(120, 80), "png");
+        Map<ImageVariant, Path> files = processor().process(source, Set.of(ImageVariant.CARD));
+        try {
+            assertSize(files.get(ImageVariant.CARD), 120, 80);
+        } finally {
+            cleanUp(source, files);
+        }
+    }
+
+    @Test
+    void appliesExifOrientationAndDropsTheExifBlock() throws IOException {
+        // Landscape pixels, red on the left, tagged "rotate 90 degrees clockwise to display" (orientation 6)
+        Path source = Files.createTempFile("orientation-", ".jpg");
+        Files.write(source, withExifOrientation(jpeg(halves(400, 200)), 6));
+        Map<ImageVariant, Path> files = processor().process(source, Set.of(ImageVariant.FULL));
+        try {
+            BufferedImage result = ImageIO.read(files.get(ImageVariant.FULL).toFile());
+            assertEquals(200, result.getWidth());
+            assertEquals(400, result.getHeight());
+            // The left half of the sensor image ends up on top
+            assertTrue(isRed(result.getRGB(100, 50)));
+            assertFalse(isRed(result.getRGB(100, 350)));
+
+            String written = new String(Files.readAllBytes(files.get(ImageVariant.FULL)), StandardCharsets.ISO_8859_1);
+            assertFalse(written.contains("Exif"));
+        } finally {
+            cleanUp(source, files);
+        }
+    }
+
+    @Test
+    void returnsNullForFilesThatAreNotImages() throws IOException {
+        Path source = Files.createTempFile("prescription-", ".pdf");
+        Files.writeString(source, "%PDF-1.4 not an image");
+        try {
+            assertNull(processor().process(source, Set.of(ImageVariant.FULL)));
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private static BufferedImage halves(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(width / 2, 0, width - width / 2, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private static Path write(BufferedImage image, String format) throws IOException {
+        Path file = Files.createTempFile("source-", "." + format);
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", bytes);
+        return bytes.toByteArray();
+    }
+
+    // Inserts a minimal big-endian APP1/EXIF segment holding only the orientation tag right after SOI
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+        byte[] app1 = {
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 0x2A, 0, 0, 0, 8,
+                0, 1,
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0
+        };
+        byte[] result = new byte[jpeg.length + app1.length];
+        System.arraycopy(jpeg, 0, result, 0, 2);
+        System.arraycopy(app1, 0, result, 2, app1.length);
+        System.arraycopy(jpeg, 2, result, 2 + app1.length, jpeg.length - 2);
+        return result;
+    }
+
+    private static boolean isRed(int rgb) {
+        Color color = new Color(rgb);
+        return color.getRed() > 200 && color.getBlue() < 60;
+    }
+
+    private static void assertSize(Path file, int width, int height) throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+    }
+
+    private static void cleanUp(Path source, Map<ImageVariant, Path> files) throws IOException {
+        Files.deleteIfExists(source);
+        if (files != null) {
+            files.values().forEach(ImageVariantProcessor::deleteQuietly);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.certaint.curevo.service.provider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalImageHostingTest {
+
+    @TempDir
+    Path temp;
+
+    private LocalImageHosting hosting() throws IOException {
+        return new LocalImageHosting(temp.resolve("store").toString(), "/media/");
+    }
+
+    private Path upload(String fileName, String content) throws IOException {
+        Path file = temp.resolve(fileName);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String nameOf(String url) {
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+
+    private static Path refsOf(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + ".refs");
+    }
+
+    @Test
+    void uploadIsAddressedByContentHash() throws IOException {
+        LocalImageHosting hosting = hosting();
+
+        String url = hosting.uploadImage(upload("a.png", "pixels"), "products");
+
+        assertTrue(url.matches("/media/[0-9a-f]{64}\\.png"));
+        Path blob = hosting.resolve(nameOf(url)).orElseThrow();
+        String name = nameOf(url);
+        assertEquals(temp.resolve("store").resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name)
+                .toAbsolutePath().normalize(), blob);
+        assertEquals("pixels", Files.readString(blob));
+        assertFalse(Files.exists(refsOf(blob)));
+    }
+
+    @Test
+    void repeatedUploadsShareOneBlobAndCountReferences() throws IOException {
+        LocalImageHosting hosting = hosting();
+
+        String first = hosting.uploadImage(upload("a.png", "same"), "products");
+        String second = hosting.uploadImage(upload("b.png", "same"), "doctors");
+        String third = hosting.uploadImage(upload("c.png", "same"), "products");
+
+        assertEquals(first, second);
+        assertEquals(first, third);
+        Path blob = hosting.resolve(nameOf(first)).orElseThrow();
+        assertEquals("3", Files.readString(refsOf(blob)).trim());
+    }
+
+    @Test
+    void deletesReleaseReferencesBeforeRemovingTheBlob() throws IOException {
+        LocalImageHosting hosting = hosting();
+        String url = hosting.uploadImage(upload("a.png", "shared"), "products");
+        hosting.uploadImage(upload("b.png", "shared"), "products");
+        hosting.uploadImage(upload("c.png", "shared"), "products");
+        Path blob = hosting.resolve(nameOf(url)).orElseThrow();
+
+        assertEquals("ok", hosting.deleteImage(url));
+        assertEquals("2", Files.readString(refsOf(blob)).trim());
+
+        // Down to one reference: the .refs file goes away, the blob stays
+        assertEquals("ok", hosting.deleteImage(url));
+        assertFalse(Files.exists(refsOf(blob)));
+        assertTrue(Files.exists(blob));
+
+        assertEquals("ok", hosting.deleteImage(url));
+        assertFalse(Files.exists(blob));
+        assertTrue(hosting.resolve(nameOf(url)).isEmpty());
+
+        assertEquals("not found", hosting.deleteImage(url));
+    }
+
+    @Test
+    void reuploadAfterDeleteStartsAFreshBlob() throws IOException {
+        LocalImageHosting hosting = hosting();
+        String url = hosting.uploadImage(upload("a.png", "again"), "products");
+        hosting.deleteImage(url);
+
+        String again = hosting.uploadImage(upload("b.png", "again"), "products");
+
+        assertEquals(url, again);
+        Path blob = hosting.resolve(nameOf(again)).orElseThrow();
+        assertFalse(Files.exists(refsOf(blob)));
+        assertEquals("ok", hosting.deleteImage(again));
+        assertFalse(Files.exists(blob));
+    }
+
+    @Test
+    void sameBytesWithDifferentExtensionsAreSeparateBlobs() throws IOException {
+        LocalImageHosting hosting = hosting();
+
+        String png = hosting.uploadImage(upload("a.png", "bytes"), "products");
+        String jpg = hosting.uploadImage(upload("a.JPEG", "bytes"), "products");
+        String bare = hosting.uploadImage(upload("upload123.tmp", "bytes"), "products");
+
+        assertNotEquals(png, jpg);
+        assertTrue(jpg.endsWith(".jpg"));
+        assertTrue(nameOf(bare).matches("[0-9a-f]{64}"));
+        assertEquals(LocalImageHosting.hashOf(nameOf(png)), LocalImageHosting.hashOf(nameOf(jpg)));
+        assertEquals(LocalImageHosting.hashOf(nameOf(png)), nameOf(bare));
+    }
+
+    @Test
+    void malformedNamesAreRejected() throws IOException {
+        LocalImageHosting hosting = hosting();
+        String url = hosting.uploadImage(upload("a.png", "content"), "products");
+        String name = nameOf(url);
+
+        assertTrue(hosting.resolve(null).isEmpty());
+        assertTrue(hosting.resolve("../" + name).isEmpty());
+        assertTrue(hosting.resolve(name.toUpperCase()).isEmpty());
+        assertTrue(hosting.resolve(name.substring(1)).isEmpty());
+        assertTrue(hosting.resolve(name + ".refs").isEmpty());
+        assertEquals("not found", hosting.deleteImage(null));
+        assertEquals("not found", hosting.deleteImage("https://res.cloudinary.com/demo/image/upload/sample.jpg"));
+        assertEquals("not found", hosting.deleteImage("/media/" + "0".repeat(64) + ".png"));
+        assertTrue(hosting.resolve(name).isPresent());
+    }
+}
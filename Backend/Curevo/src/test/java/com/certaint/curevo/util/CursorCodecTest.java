@@ -0,0 +1,54 @@
+package com.certaint.curevo.util;
+
+import com.certaint.curevo.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorCodecTest {
+
+    @Test
+    void roundTripsSortKeyAndId() {
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode("2025-06-01T10:15:30Z", 42L));
+
+        assertEquals("2025-06-01T10:15:30Z", cursor.sortKey());
+        assertEquals(42L, cursor.id());
+    }
+
+    @Test
+    void keepsSeparatorsAndNonAsciiInsideTheSortKey() {
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode("a|b|Crème", 7L));
+
+        assertEquals("a|b|Crème", cursor.sortKey());
+        assertEquals(7L, cursor.id());
+    }
+
+    @Test
+    void encodesNullSortKeyAsEmpty() {
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode(null, -3L));
+
+        assertEquals("", cursor.sortKey());
+        assertEquals(-3L, cursor.id());
+    }
+
+    @Test
+    void tokensAreUrlSafeWithoutPadding() {
+        String token = CursorCodec.encode("??>>~~", 1L);
+
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("12345".getBytes());
+        String badId = Base64.getUrlEncoder().encodeToString("key|abc".getBytes());
+
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode("not base64!"));
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode(noSeparator));
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode(badId));
+    }
+}
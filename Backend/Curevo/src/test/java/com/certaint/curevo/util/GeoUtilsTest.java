@@ -0,0 +1,40 @@
+package com.certaint.curevo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoUtilsTest {
+
+    @Test
+    void boxAwayFromTheAntimeridianIsOnePolygon() {
+        String wkt = GeoUtils.boundingBoxWkt(12.9, 77.6, 10);
+
+        assertTrue(wkt.startsWith("POLYGON(("));
+    }
+
+    @Test
+    void boxCrossingTheAntimeridianIsSplitInTwo() {
+        String east = GeoUtils.boundingBoxWkt(-17.0, 179.95, 20);
+        String west = GeoUtils.boundingBoxWkt(-17.0, -179.95, 20);
+
+        assertTrue(east.startsWith("MULTIPOLYGON"));
+        assertTrue(east.contains("180.000000 -17.179864") && east.contains("-180.000000 -17.179864"));
+        assertTrue(east.contains("-179.861736"));
+        assertTrue(west.startsWith("MULTIPOLYGON"));
+        assertTrue(west.contains("179.861736"));
+    }
+
+    @Test
+    void boxReachingThePoleCoversEveryLongitude() {
+        assertEquals("POLYGON((-180.000000 89.450339, 180.000000 89.450339, 180.000000 90.000000, "
+                + "-180.000000 90.000000, -180.000000 89.450339))", GeoUtils.boundingBoxWkt(89.9, 0, 50));
+    }
+
+    @Test
+    void haversineMatchesAKnownDistance() {
+        // Bengaluru to Mumbai, roughly 845 km great-circle
+        assertEquals(845, GeoUtils.haversineKm(12.9716, 77.5946, 19.0760, 72.8777), 10);
+    }
+}
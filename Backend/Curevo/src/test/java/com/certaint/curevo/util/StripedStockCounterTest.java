@@ -0,0 +1,138 @@
+package com.certaint.curevo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedStockCounterTest {
+
+    @Test
+    void takesAndReleasesUnits() {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.refill(() -> 10);
+
+        assertTrue(counter.tryTake(3));
+        assertEquals(7, counter.available());
+        counter.release(2);
+        assertEquals(9, counter.available());
+    }
+
+    @Test
+    void takesAcrossStripesWhenNoSingleStripeCoversTheRequest() {
+        // 10 units over 4 stripes is at most 3 per stripe, so taking 9 needs the slow path
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.refill(() -> 10);
+
+        assertTrue(counter.tryTake(9));
+        assertEquals(1, counter.available());
+        assertFalse(counter.tryTake(2));
+        assertEquals(1, counter.available());
+        assertTrue(counter.tryTake(1));
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    void refillReplacesTheLevelAndClampsNegativeValues() {
+        StripedStockCounter counter = new StripedStockCounter(3);
+        counter.refill(() -> 5);
+        counter.refill(() -> 12);
+        assertEquals(12, counter.available());
+
+        counter.refill(() -> -4);
+        assertEquals(0, counter.available());
+        assertFalse(counter.tryTake(1));
+    }
+
+    @Test
+    void retiredCounterRefusesEverything() {
+        StripedStockCounter counter = new StripedStockCounter(2);
+        counter.refill(() -> 5);
+        counter.retire();
+
+        assertFalse(counter.tryTake(1));
+        counter.release(3);
+        counter.refill(() -> 8);
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    void concurrentTakesNeverOversell() throws Exception {
+        int stock = 10_000;
+        int threads = 16;
+        StripedStockCounter counter = new StripedStockCounter(8);
+        counter.refill(() -> stock);
+
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int quantity = 1 + t % 3;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    // Keep asking until a request fails; a failure with stock left must leave less than the request
+                    while (counter.tryTake(quantity)) {
+                        taken.addAndGet(quantity);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(stock, taken.get() + counter.available());
+        assertTrue(counter.available() < 3);
+    }
+
+    @Test
+    void refillDuringTakesKeepsTheTotalConsistent() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.refill(() -> 1_000);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                workers.add(pool.submit(() -> {
+                    while (running.get()) {
+                        if (counter.tryTake(1)) {
+                            counter.release(1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 200; i++) {
+                counter.refill(() -> 1_000);
+            }
+            running.set(false);
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Every take was released again; releases that raced a refill are kept on top of the new level
+        assertTrue(counter.available() >= 1_000);
+    }
+}